@@ -0,0 +1,461 @@
+package extMath;
+
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+
+/**
+ * This class applies the number theoretic functions of ExtMath to whole
+ * arrays of numbers in parallel. The arrays are split in chunks which are
+ * processed by a fork join pool, so idle threads steal the chunks of busy
+ * ones when some numbers take longer than others. The results are returned
+ * as primitive arrays, and as a FlatArray when every number gives a list of
+ * values, so no boxing takes place. Every result equals the result of the
+ * corresponding function of ExtMath for that number.
+ *
+ * Every function has an asynchronous variant, which submits the chunks to
+ * the given executor and returns immediately. The returned future completes
+ * when all the chunks have been processed.
+ *
+ * @author Mattias De Charleroy
+ * @version 1.0
+ */
+public final class BatchMath {
+
+	/**
+	 * Initializes this BatchMath with a fork join pool which is shared by all
+	 * the instances created with this constructor, and has one thread per
+	 * processor.
+	 */
+	public BatchMath() {
+		this(DEFAULT_POOL);
+	}
+
+	/**
+	 * Initializes this BatchMath with the given fork join pool.
+	 *
+	 * @param pool
+	 *        The pool which processes the chunks of the synchronous functions
+	 */
+	public BatchMath(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Determines for every number whether it is prime.
+	 *
+	 * @param numbers
+	 *        The numbers to test
+	 * @return Returns an array whose ith element equals
+	 *         ExtMath.isPrime(numbers[i])
+	 */
+	public boolean[] isPrime(long[] numbers) {
+		return invoke(numbers, new IsPrime(numbers.length));
+	}
+
+	/**
+	 * Calculates the phi function of every number.
+	 *
+	 * @param numbers
+	 *        The numbers for which to calculate the phi function
+	 * @return Returns an array whose ith element equals
+	 *         ExtMath.phi(numbers[i])
+	 */
+	public long[] phi(long[] numbers) {
+		return invoke(numbers, new Phi(numbers.length));
+	}
+
+	/**
+	 * Calculates the number of divisors of every number.
+	 *
+	 * @param numbers
+	 *        The numbers for which the number of divisors has to be calculated
+	 * @return Returns an array whose ith element equals
+	 *         ExtMath.getNumberOfDivisors(numbers[i])
+	 */
+	public int[] getNumberOfDivisors(long[] numbers) {
+		return invoke(numbers, new NumberOfDivisors(numbers.length));
+	}
+
+	/**
+	 * Calculates the sum of the divisors of every number.
+	 *
+	 * @param numbers
+	 *        The numbers whose sum of all the divisors have to be calculated
+	 * @return Returns an array whose ith element equals
+	 *         ExtMath.getSumDivisors(numbers[i])
+	 */
+	public long[] getSumDivisors(long[] numbers) {
+		return invoke(numbers, new SumDivisors(numbers.length));
+	}
+
+	/**
+	 * Calculates the prime factorization of every number.
+	 *
+	 * @param numbers
+	 *        The numbers whose prime factorizations must be found
+	 * @return Returns a FlatArray whose ith row equals
+	 *         ExtMath.getSharedFactorization(numbers[i])
+	 */
+	public FlatArray getFactorizations(long[] numbers) {
+		return invoke(numbers, new Factorizations(numbers.length));
+	}
+
+	/**
+	 * Calculates the divisors of every number.
+	 *
+	 * @param numbers
+	 *        The numbers whose divisors are to be found
+	 * @return Returns a FlatArray whose ith row holds the elements of
+	 *         ExtMath.getDivisors(numbers[i]), in ascending order
+	 */
+	public FlatArray getDivisors(long[] numbers) {
+		return invoke(numbers, new Divisors(numbers.length));
+	}
+
+	/**
+	 * The asynchronous variant of isPrime(long[]).
+	 *
+	 * @param numbers
+	 *        The numbers to test, which must not be modified before the
+	 *        future has completed
+	 * @param executor
+	 *        The executor which processes the chunks
+	 */
+	public Future<boolean[]> isPrimeAsync(long[] numbers, ExecutorService executor) {
+		return submit(numbers, new IsPrime(numbers.length), executor);
+	}
+
+	/**
+	 * The asynchronous variant of phi(long[]).
+	 *
+	 * @see #isPrimeAsync(long[], ExecutorService)
+	 */
+	public Future<long[]> phiAsync(long[] numbers, ExecutorService executor) {
+		return submit(numbers, new Phi(numbers.length), executor);
+	}
+
+	/**
+	 * The asynchronous variant of getNumberOfDivisors(long[]).
+	 *
+	 * @see #isPrimeAsync(long[], ExecutorService)
+	 */
+	public Future<int[]> getNumberOfDivisorsAsync(long[] numbers, ExecutorService executor) {
+		return submit(numbers, new NumberOfDivisors(numbers.length), executor);
+	}
+
+	/**
+	 * The asynchronous variant of getSumDivisors(long[]).
+	 *
+	 * @see #isPrimeAsync(long[], ExecutorService)
+	 */
+	public Future<long[]> getSumDivisorsAsync(long[] numbers, ExecutorService executor) {
+		return submit(numbers, new SumDivisors(numbers.length), executor);
+	}
+
+	/**
+	 * The asynchronous variant of getFactorizations(long[]).
+	 *
+	 * @see #isPrimeAsync(long[], ExecutorService)
+	 */
+	public Future<FlatArray> getFactorizationsAsync(long[] numbers, ExecutorService executor) {
+		return submit(numbers, new Factorizations(numbers.length), executor);
+	}
+
+	/**
+	 * The asynchronous variant of getDivisors(long[]).
+	 *
+	 * @see #isPrimeAsync(long[], ExecutorService)
+	 */
+	public Future<FlatArray> getDivisorsAsync(long[] numbers, ExecutorService executor) {
+		return submit(numbers, new Divisors(numbers.length), executor);
+	}
+
+	private <T> T invoke(long[] numbers, Kernel<T> kernel) {
+		pool.invoke(new Chunk(numbers, 0, numbers.length,
+				chunkSize(numbers.length, pool.getParallelism()), kernel));
+		return kernel.result();
+	}
+
+	private static <T> Future<T> submit(final long[] numbers, final Kernel<T> kernel,
+			ExecutorService executor) {
+		int chunkSize = chunkSize(numbers.length, Runtime.getRuntime().availableProcessors());
+		List<Future<?>> chunks = new ArrayList<Future<?>>();
+		for (int from = 0; from < numbers.length; from += chunkSize) {
+			final int start = from, end = Math.min(numbers.length, from + chunkSize);
+			chunks.add(executor.submit(new Runnable() {
+
+				@Override
+				public void run() {
+					kernel.compute(numbers, start, end);
+				}
+			}));
+		}
+		return new BatchFuture<T>(chunks, kernel);
+	}
+
+	/**
+	 * Returns the size of the chunks which are no longer split, a few chunks
+	 * per thread so the work can be balanced.
+	 */
+	private static int chunkSize(int length, int parallelism) {
+		return Math.max(MIN_CHUNK_SIZE, length / (CHUNKS_PER_THREAD * parallelism));
+	}
+
+	/**
+	 * The function applied to the numbers, which writes the result of every
+	 * number at its index. Chunks are computed concurrently, but each index
+	 * is written by a single chunk only.
+	 */
+	private static abstract class Kernel<T> {
+
+		abstract void compute(long[] numbers, int from, int to);
+
+		/**
+		 * Returns the result, once all the chunks have been computed.
+		 */
+		abstract T result();
+	}
+
+	private static final class IsPrime extends Kernel<boolean[]> {
+
+		IsPrime(int length) {
+			results = new boolean[length];
+		}
+
+		@Override
+		void compute(long[] numbers, int from, int to) {
+			for (int i = from; i < to; i++)
+				results[i] = ExtMath.isPrime(numbers[i]);
+		}
+
+		@Override
+		boolean[] result() {
+			return results;
+		}
+
+		private final boolean[] results;
+	}
+
+	private static final class Phi extends Kernel<long[]> {
+
+		Phi(int length) {
+			results = new long[length];
+		}
+
+		@Override
+		void compute(long[] numbers, int from, int to) {
+			for (int i = from; i < to; i++)
+				results[i] = ExtMath.phi(numbers[i]);
+		}
+
+		@Override
+		long[] result() {
+			return results;
+		}
+
+		private final long[] results;
+	}
+
+	private static final class NumberOfDivisors extends Kernel<int[]> {
+
+		NumberOfDivisors(int length) {
+			results = new int[length];
+		}
+
+		@Override
+		void compute(long[] numbers, int from, int to) {
+			for (int i = from; i < to; i++)
+				results[i] = ExtMath.getNumberOfDivisors(numbers[i]);
+		}
+
+		@Override
+		int[] result() {
+			return results;
+		}
+
+		private final int[] results;
+	}
+
+	private static final class SumDivisors extends Kernel<long[]> {
+
+		SumDivisors(int length) {
+			results = new long[length];
+		}
+
+		@Override
+		void compute(long[] numbers, int from, int to) {
+			for (int i = from; i < to; i++)
+				results[i] = ExtMath.getSumDivisors(numbers[i]);
+		}
+
+		@Override
+		long[] result() {
+			return results;
+		}
+
+		private final long[] results;
+	}
+
+	/**
+	 * A kernel with a list of values per number, which are collected into a
+	 * FlatArray once all the chunks have been computed.
+	 */
+	private static abstract class RowKernel extends Kernel<FlatArray> {
+
+		RowKernel(int length) {
+			rows = new long[length][];
+		}
+
+		@Override
+		synchronized FlatArray result() {
+			if (result == null) {
+				int[] offsets = new int[rows.length + 1];
+				long total = 0;
+				for (int i = 0; i < rows.length; i++) {
+					total += rows[i].length;
+					if (total > Integer.MAX_VALUE)
+						throw new OverflowException("The results are too large for a FlatArray");
+					offsets[i + 1] = (int) total;
+				}
+				long[] values = new long[(int) total];
+				for (int i = 0; i < rows.length; i++)
+					System.arraycopy(rows[i], 0, values, offsets[i], rows[i].length);
+				result = new FlatArray(offsets, values);
+				rows = null;
+			}
+			return result;
+		}
+
+		long[][] rows;
+		private FlatArray result;
+	}
+
+	private static final class Factorizations extends RowKernel {
+
+		Factorizations(int length) {
+			super(length);
+		}
+
+		@Override
+		void compute(long[] numbers, int from, int to) {
+			for (int i = from; i < to; i++)
+				rows[i] = ExtMath.getSharedFactorization(numbers[i]);
+		}
+	}
+
+	private static final class Divisors extends RowKernel {
+
+		Divisors(int length) {
+			super(length);
+		}
+
+		@Override
+		void compute(long[] numbers, int from, int to) {
+			for (int i = from; i < to; i++)
+				rows[i] = ExtMath.getDivisors(ExtMath.getSharedFactorization(numbers[i]), true);
+		}
+	}
+
+	/**
+	 * Splits its range in halves until it is no larger than the chunk size.
+	 */
+	private static final class Chunk extends RecursiveAction {
+
+		Chunk(long[] numbers, int from, int to, int chunkSize, Kernel<?> kernel) {
+			this.numbers = numbers;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+			this.kernel = kernel;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= chunkSize) {
+				kernel.compute(numbers, from, to);
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new Chunk(numbers, from, middle, chunkSize, kernel), new Chunk(numbers,
+					middle, to, chunkSize, kernel));
+		}
+
+		private final long[] numbers;
+		private final int from, to, chunkSize;
+		private final Kernel<?> kernel;
+
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * The future of an asynchronous batch, which completes when all of its
+	 * chunks have completed.
+	 */
+	private static final class BatchFuture<T> implements Future<T> {
+
+		BatchFuture(List<Future<?>> chunks, Kernel<T> kernel) {
+			this.chunks = chunks;
+			this.kernel = kernel;
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = false;
+			for (Future<?> chunk : chunks)
+				cancelled |= chunk.cancel(mayInterruptIfRunning);
+			return cancelled;
+		}
+
+		@Override
+		public boolean isCancelled() {
+			for (Future<?> chunk : chunks)
+				if (chunk.isCancelled())
+					return true;
+			return false;
+		}
+
+		@Override
+		public boolean isDone() {
+			for (Future<?> chunk : chunks)
+				if (!chunk.isDone())
+					return false;
+			return true;
+		}
+
+		@Override
+		public T get() throws InterruptedException, ExecutionException {
+			for (Future<?> chunk : chunks)
+				chunk.get();
+			return kernel.result();
+		}
+
+		@Override
+		public T get(long timeout, TimeUnit unit) throws InterruptedException,
+				ExecutionException, TimeoutException {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			for (Future<?> chunk : chunks)
+				chunk.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			return kernel.result();
+		}
+
+		private final List<Future<?>> chunks;
+		private final Kernel<T> kernel;
+	}
+
+	private final ForkJoinPool pool;
+
+	private static final ForkJoinPool DEFAULT_POOL = new ForkJoinPool();
+
+	private static final int MIN_CHUNK_SIZE = 16;
+
+	private static final int CHUNKS_PER_THREAD = 8;
+}
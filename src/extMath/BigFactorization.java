@@ -0,0 +1,228 @@
+package extMath;
+
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+
+
+/**
+ * This class factors BigIntegers with a pipeline of methods, each suited for
+ * a different size of factors: trial division for the tiny factors, Pollard's
+ * rho method for the small ones, the elliptic curve method for the medium
+ * sized ones and the self-initialising quadratic sieve for what remains, which
+ * are typically products of two primes of similar size.
+ *
+ * @author Mattias De Charleroy
+ * @version 1.0
+ */
+final class BigFactorization {
+
+	private BigFactorization() {
+	}
+
+	/**
+	 * Returns the prime factorization of the given number, in the layout of
+	 * ExtMath.getPrimeFactors.
+	 */
+	static ArrayList<BigInteger> factor(BigInteger number) {
+		TreeMap<BigInteger, Integer> factors = new TreeMap<BigInteger, Integer>();
+		BigInteger remaining = trialDivide(number, factors);
+		if (!remaining.equals(BigInteger.ONE))
+			factorInto(remaining, 1, factors);
+
+		ArrayList<BigInteger> primeFactors = new ArrayList<BigInteger>(2 * factors.size());
+		for (BigInteger prime : factors.keySet()) {
+			primeFactors.add(prime);
+			primeFactors.add(BigInteger.valueOf(factors.get(prime)));
+		}
+		return primeFactors;
+	}
+
+	/**
+	 * Adds the prime factors of n, which has no factors below the trial
+	 * division bound, with the given multiplicity to the factors.
+	 */
+	private static void factorInto(BigInteger n, int multiplicity,
+			TreeMap<BigInteger, Integer> factors) {
+		if (BigPrimality.isProbablePrime(n)) {
+			Integer exp = factors.get(n);
+			factors.put(n, (exp == null ? 0 : exp) + multiplicity);
+			return;
+		}
+
+		for (int k = n.bitLength() / TRIAL_DIVISION_BITS; k >= 2; k--) {
+			BigInteger root = root(n, k);
+			if (root.pow(k).equals(n)) {
+				factorInto(root, multiplicity * k, factors);
+				return;
+			}
+		}
+
+		BigInteger divisor = findFactor(n);
+		BigInteger cofactor = n.divide(divisor);
+		// Split off the common part so that both parts are factored once.
+		BigInteger common = divisor.gcd(cofactor);
+		if (common.equals(BigInteger.ONE)) {
+			factorInto(divisor, multiplicity, factors);
+			factorInto(cofactor, multiplicity, factors);
+		} else {
+			factorInto(common, multiplicity, factors);
+			factorInto(n.divide(common), multiplicity, factors);
+		}
+	}
+
+	/**
+	 * Returns a non trivial factor of the composite n, which is not a perfect
+	 * power.
+	 */
+	private static BigInteger findFactor(BigInteger n) {
+		Random random = new Random(n.longValue());
+		int bits = n.bitLength();
+		BigInteger divisor = pollardRho(n, bits <= RHO_ONLY_BITS ? Long.MAX_VALUE
+				: RHO_ITERATIONS, random);
+		if (divisor != null)
+			return divisor;
+		if (bits > ECM_MINIMUM_BITS) {
+			divisor = EllipticCurveMethod.findFactor(n, bits, random);
+			if (divisor != null)
+				return divisor;
+		}
+		return QuadraticSieve.findFactor(n);
+	}
+
+	/**
+	 * Divides out all the primes below 2^TRIAL_DIVISION_BITS and adds them to
+	 * the factors. Returns the remaining cofactor.
+	 */
+	private static BigInteger trialDivide(BigInteger number, TreeMap<BigInteger, Integer> factors) {
+		int twos = number.getLowestSetBit();
+		if (twos > 0) {
+			factors.put(BigInteger.valueOf(2), twos);
+			number = number.shiftRight(twos);
+		}
+		int[] primes = smallPrimes();
+		for (int i = 1; i < primes.length; i++) {
+			int prime = primes[i];
+			if (number.bitLength() < 63 && (long) prime * prime > number.longValue())
+				break;
+			BigInteger bigPrime = BigInteger.valueOf(prime);
+			int exp = 0;
+			BigInteger[] division = number.divideAndRemainder(bigPrime);
+			while (division[1].signum() == 0) {
+				number = division[0];
+				exp++;
+				division = number.divideAndRemainder(bigPrime);
+			}
+			if (exp > 0)
+				factors.put(bigPrime, exp);
+		}
+		if (number.bitLength() < 63 && number.longValue() > 1
+				&& number.longValue() < (long) primes[primes.length - 1] * primes[primes.length - 1]) {
+			factors.put(number, 1);
+			return BigInteger.ONE;
+		}
+		return number;
+	}
+
+	/**
+	 * Pollard's rho method with the cycle detection of Brent. The gcds are
+	 * batched, every gcd is taken over the product of many differences.
+	 * Returns null if no factor has been found within the given amount of
+	 * iterations.
+	 */
+	static BigInteger pollardRho(BigInteger n, long maxIterations, Random random) {
+		long iterations = 0;
+		while (iterations < maxIterations) {
+			BigInteger c = new BigInteger(n.bitLength() - 1, random).add(BigInteger.ONE);
+			BigInteger y = new BigInteger(n.bitLength() - 1, random), x = y, ys = y;
+			BigInteger g = BigInteger.ONE, product = BigInteger.ONE;
+			for (long r = 1; g.equals(BigInteger.ONE) && iterations < maxIterations; r <<= 1) {
+				x = y;
+				for (long i = 0; i < r; i++)
+					y = y.multiply(y).add(c).mod(n);
+				for (long k = 0; k < r && g.equals(BigInteger.ONE); k += RHO_BATCH) {
+					ys = y;
+					for (long i = 0; i < Math.min(RHO_BATCH, r - k); i++) {
+						y = y.multiply(y).add(c).mod(n);
+						product = product.multiply(x.subtract(y)).mod(n);
+					}
+					g = product.gcd(n);
+					iterations += Math.min(RHO_BATCH, r - k);
+				}
+			}
+			if (g.equals(n)) {
+				// The batch overshot, repeat its steps one gcd at a time.
+				do {
+					ys = ys.multiply(ys).add(c).mod(n);
+					g = x.subtract(ys).gcd(n);
+				} while (g.equals(BigInteger.ONE));
+			}
+			if (!g.equals(BigInteger.ONE) && !g.equals(n))
+				return g;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the largest integer whose square is at most n.
+	 */
+	static BigInteger sqrt(BigInteger n) {
+		return root(n, 2);
+	}
+
+	/**
+	 * Returns the largest integer whose kth power is at most n, for a non
+	 * negative n.
+	 */
+	static BigInteger root(BigInteger n, int k) {
+		if (n.signum() == 0)
+			return n;
+		// Newton's method from above, starting with a power of two larger than
+		// the root, decreases monotonically towards the root.
+		BigInteger x = BigInteger.ONE.shiftLeft(n.bitLength() / k + 1);
+		BigInteger kMinusOne = BigInteger.valueOf(k - 1), bigK = BigInteger.valueOf(k);
+		while (true) {
+			BigInteger next = x.multiply(kMinusOne).add(n.divide(x.pow(k - 1))).divide(bigK);
+			if (next.compareTo(x) >= 0)
+				return x;
+			x = next;
+		}
+	}
+
+	/**
+	 * Returns the primes below 2^TRIAL_DIVISION_BITS.
+	 */
+	static int[] smallPrimes() {
+		return ExtMath.primesUpTo(1 << TRIAL_DIVISION_BITS);
+	}
+
+	/**
+	 * Trial division is done up to 2^14, so a remaining cofactor below 2^28 is
+	 * prime and no remaining cofactor is a kth power for k larger than its
+	 * amount of bits divided by 14.
+	 */
+	static final int TRIAL_DIVISION_BITS = 14;
+
+	/**
+	 * Numbers of at most this many bits have factors small enough for rho to
+	 * find quickly, so no other method is tried on them.
+	 */
+	private static final int RHO_ONLY_BITS = 64;
+
+	/**
+	 * The amount of rho iterations on larger numbers, enough to find factors
+	 * of about 10 digits. Larger factors are left to the elliptic curve
+	 * method.
+	 */
+	private static final long RHO_ITERATIONS = 1 << 15;
+
+	private static final long RHO_BATCH = 128;
+
+	/**
+	 * Numbers of at most this many bits are given to the quadratic sieve
+	 * directly, the sieve is faster than ECM for them.
+	 */
+	private static final int ECM_MINIMUM_BITS = 100;
+}
@@ -2,6 +2,7 @@ package extMath;
 
 
 import java.math.BigInteger;
+import java.util.ArrayList;
 
 
 /**
@@ -137,6 +138,235 @@ public class BigFraction implements Comparable<BigFraction> {
 		return numerator / denominator;
 	}
 
+	/**
+	 * Adds the given BigFraction to this fraction and approximates the sum by
+	 * the closest fraction whose denominator is at most the given bound. When
+	 * a long chain of operations is done in this way, the numerators and
+	 * denominators stay bounded, thus every operation takes the same time.
+	 * 
+	 * @param other
+	 *        The other BigFraction to add to this fraction.
+	 * @param maxDenominator
+	 *        The largest denominator the result may have
+	 * @return Returns a new BigFraction which is the closest approximation of
+	 *         the sum of this fraction and the argument.
+	 * @see #limitDenominator(BigInteger)
+	 */
+	public BigFraction add(BigFraction other, BigInteger maxDenominator) {
+		return new BigFraction(this.numerator.multiply(other.denominator).add(
+				other.numerator.multiply(this.denominator)),
+				this.denominator.multiply(other.denominator)).limitDenominator(maxDenominator);
+	}
+
+	/**
+	 * Substracts the given argument from this fraction and approximates the
+	 * result by the closest fraction whose denominator is at most the given
+	 * bound.
+	 * 
+	 * @param other
+	 *        The other BigFraction which is going to be substracted from this
+	 *        fraction
+	 * @param maxDenominator
+	 *        The largest denominator the result may have
+	 * @return Returns a new BigFraction which is the closest approximation of
+	 *         the substraction of this fraction and the argument.
+	 * @see #add(BigFraction, BigInteger)
+	 */
+	public BigFraction substract(BigFraction other, BigInteger maxDenominator) {
+		return add(other.negate(), maxDenominator);
+	}
+
+	/**
+	 * Multiplies this fraction with the given argument and approximates the
+	 * product by the closest fraction whose denominator is at most the given
+	 * bound.
+	 * 
+	 * @param other
+	 *        The other fraction which is the multiplier of the product of this
+	 *        fraction.
+	 * @param maxDenominator
+	 *        The largest denominator the result may have
+	 * @return Returns a new BigFraction which is the closest approximation of
+	 *         the product of this fraction and the given argument.
+	 * @see #add(BigFraction, BigInteger)
+	 */
+	public BigFraction multiply(BigFraction other, BigInteger maxDenominator) {
+		return new BigFraction(this.numerator.multiply(other.numerator),
+				this.denominator.multiply(other.denominator)).limitDenominator(maxDenominator);
+	}
+
+	/**
+	 * Divides this fraction with the given argument and approximates the
+	 * result by the closest fraction whose denominator is at most the given
+	 * bound.
+	 * 
+	 * @param other
+	 *        The other fraction which is the divider of the division
+	 * @param maxDenominator
+	 *        The largest denominator the result may have
+	 * @return Returns a new BigFraction which is the closest approximation of
+	 *         the division of this fraction and the given argument.
+	 * @see #add(BigFraction, BigInteger)
+	 */
+	public BigFraction divide(BigFraction other, BigInteger maxDenominator) {
+		return multiply(other.inverse(), maxDenominator);
+	}
+
+	/**
+	 * Returns the continued fraction expansion of this fraction, the terms
+	 * a0, a1, ..., an such that this fraction equals a0 + 1/(a1 + 1/(... +
+	 * 1/an)). The first term is the floor of this fraction, all the other
+	 * terms are strictly positive.
+	 */
+	public BigInteger[] continuedFraction() {
+		ArrayList<BigInteger> terms = new ArrayList<BigInteger>();
+		BigInteger n = this.numerator, d = this.denominator;
+		if (d.signum() < 0) {
+			n = n.negate();
+			d = d.negate();
+		}
+		while (d.signum() != 0) {
+			BigInteger[] division = floorDivide(n, d);
+			terms.add(division[0]);
+			n = d;
+			d = division[1];
+		}
+		return terms.toArray(new BigInteger[terms.size()]);
+	}
+
+	/**
+	 * Returns the convergents of this fraction, which are the fractions
+	 * obtained by cutting off its continued fraction expansion after every
+	 * term. Every convergent is simplified, they alternate around this
+	 * fraction and each one is closer to it than the previous one. The last
+	 * convergent equals this fraction.
+	 * 
+	 * @see #continuedFraction()
+	 */
+	public ArrayList<BigFraction> convergents() {
+		BigInteger[] terms = continuedFraction();
+		ArrayList<BigFraction> convergents = new ArrayList<BigFraction>(terms.length);
+		BigInteger p0 = BigInteger.ZERO, q0 = BigInteger.ONE;
+		BigInteger p1 = BigInteger.ONE, q1 = BigInteger.ZERO;
+		for (BigInteger term : terms) {
+			BigInteger p2 = p0.add(term.multiply(p1)), q2 = q0.add(term.multiply(q1));
+			convergents.add(new BigFraction(p2, q2));
+			p0 = p1;
+			q0 = q1;
+			p1 = p2;
+			q1 = q2;
+		}
+		return convergents;
+	}
+
+	/**
+	 * Returns the fraction closest to this fraction whose denominator is at
+	 * most the given bound. If two fractions are equally close, the one with
+	 * the smallest denominator is returned. The result is found by walking
+	 * the continued fraction expansion of this fraction: it is either the
+	 * last convergent whose denominator is within the bound, or the largest
+	 * intermediate fraction between that convergent and the previous one.
+	 * 
+	 * @param maxDenominator
+	 *        The largest denominator the result may have
+	 * @return Returns the closest simplified fraction with a positive
+	 *         denominator of at most maxDenominator.
+	 * @throws IllegalArgumentException
+	 *         Thrown when maxDenominator is not strictly positive
+	 */
+	public BigFraction limitDenominator(BigInteger maxDenominator) {
+		if (maxDenominator.signum() <= 0)
+			throw new IllegalArgumentException("The maximal denominator must be strictly positive");
+		BigInteger n = this.numerator, d = this.denominator;
+		if (d.signum() < 0) {
+			n = n.negate();
+			d = d.negate();
+		}
+		BigInteger gcd = n.gcd(d);
+		if (!gcd.equals(BigInteger.ONE)) {
+			n = n.divide(gcd);
+			d = d.divide(gcd);
+		}
+		if (d.compareTo(maxDenominator) <= 0)
+			return new BigFraction(n, d);
+
+		// p1/q1 is the last convergent within the bound, p0/q0 the one before.
+		BigInteger p0 = BigInteger.ZERO, q0 = BigInteger.ONE;
+		BigInteger p1 = BigInteger.ONE, q1 = BigInteger.ZERO;
+		BigInteger x = n, y = d;
+		while (true) {
+			BigInteger[] division = floorDivide(x, y);
+			BigInteger q2 = q0.add(division[0].multiply(q1));
+			if (q2.compareTo(maxDenominator) > 0)
+				break;
+			BigInteger p2 = p0.add(division[0].multiply(p1));
+			p0 = p1;
+			q0 = q1;
+			p1 = p2;
+			q1 = q2;
+			x = y;
+			y = division[1];
+		}
+		BigInteger k = maxDenominator.subtract(q0).divide(q1);
+		BigInteger pk = p0.add(k.multiply(p1)), qk = q0.add(k.multiply(q1));
+		// The intermediate fraction pk/qk and the convergent lie on either
+		// side of this fraction at a distance 1/(q1*qk) of each other, so the
+		// convergent is the closest if it lies within half that distance.
+		BigInteger error = p1.multiply(d).subtract(n.multiply(q1)).abs();
+		if (error.multiply(qk).shiftLeft(1).compareTo(d) <= 0)
+			return new BigFraction(p1, q1);
+		return new BigFraction(pk, qk);
+	}
+
+	/**
+	 * Returns the fraction closest to the given double value whose
+	 * denominator is at most the given bound. The double value is taken
+	 * exactly, thus this function inverts toDecimals() for every fraction
+	 * whose denominator is at most the bound and small enough compared to the
+	 * precision of a double.
+	 * 
+	 * @param value
+	 *        The value to approximate
+	 * @param maxDenominator
+	 *        The largest denominator the result may have
+	 * @return Returns the closest simplified fraction with a positive
+	 *         denominator of at most maxDenominator.
+	 * @throws IllegalArgumentException
+	 *         Thrown when the value is infinite or not a number, or when
+	 *         maxDenominator is not strictly positive
+	 * @see #limitDenominator(BigInteger)
+	 */
+	public static BigFraction valueOf(double value, BigInteger maxDenominator) {
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			throw new IllegalArgumentException("Only finite values can be represented as a fraction");
+		long bits = Double.doubleToLongBits(value);
+		int exponent = (int) ((bits >> 52) & 0x7FF);
+		long mantissa = bits & 0xFFFFFFFFFFFFFL;
+		if (exponent == 0)
+			exponent++;
+		else
+			mantissa |= 1L << 52;
+		// value = mantissa * 2^(exponent - 1075)
+		exponent -= 1075;
+		BigInteger numerator = BigInteger.valueOf(bits < 0 ? -mantissa : mantissa);
+		BigFraction exact = exponent >= 0 ? new BigFraction(numerator.shiftLeft(exponent),
+				BigInteger.ONE) : new BigFraction(numerator, BigInteger.ONE.shiftLeft(-exponent));
+		return exact.limitDenominator(maxDenominator);
+	}
+
+	/**
+	 * Returns the floor of n / d and the non negative remainder, for a
+	 * positive d.
+	 */
+	private static BigInteger[] floorDivide(BigInteger n, BigInteger d) {
+		BigInteger[] division = n.divideAndRemainder(d);
+		if (division[1].signum() < 0) {
+			division[0] = division[0].subtract(BigInteger.ONE);
+			division[1] = division[1].add(d);
+		}
+		return division;
+	}
+
 	public final BigInteger numerator, denominator;
 
 	@Override
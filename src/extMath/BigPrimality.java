@@ -0,0 +1,182 @@
+package extMath;
+
+
+import java.math.BigInteger;
+
+
+/**
+ * This class implements the Baillie-PSW primality test for BigIntegers: trial
+ * division by the small primes, a strong probable prime test to base 2 and a
+ * strong Lucas probable prime test with the parameters of Selfridge. No
+ * composite number is known to pass this test, and it has been verified that
+ * none below 2^64 does.
+ *
+ * @author Mattias De Charleroy
+ * @version 1.0
+ */
+final class BigPrimality {
+
+	private BigPrimality() {
+	}
+
+	/**
+	 * Returns true if and only if the given number passes the Baillie-PSW
+	 * test.
+	 */
+	static boolean isProbablePrime(BigInteger n) {
+		if (n.signum() <= 0 || n.equals(BigInteger.ONE))
+			return false;
+		for (int prime : SMALL_PRIMES)
+			if (n.mod(BigInteger.valueOf(prime)).signum() == 0)
+				return n.equals(BigInteger.valueOf(prime));
+		if (n.bitLength() < 14 && n.intValue() < 101 * 101)
+			return true;
+		return isStrongProbablePrime(n, TWO) && isStrongLucasProbablePrime(n);
+	}
+
+	/**
+	 * The strong (Miller-Rabin) probable prime test to the given base for an
+	 * odd number n.
+	 */
+	static boolean isStrongProbablePrime(BigInteger n, BigInteger base) {
+		BigInteger nMinusOne = n.subtract(BigInteger.ONE);
+		int s = nMinusOne.getLowestSetBit();
+		BigInteger x = base.modPow(nMinusOne.shiftRight(s), n);
+		if (x.equals(BigInteger.ONE) || x.equals(nMinusOne))
+			return true;
+		for (int r = 1; r < s; r++) {
+			x = x.multiply(x).mod(n);
+			if (x.equals(nMinusOne))
+				return true;
+			if (x.equals(BigInteger.ONE))
+				return false;
+		}
+		return false;
+	}
+
+	/**
+	 * The strong Lucas probable prime test for an odd number n which is not
+	 * divisible by a small prime. D is the first of 5, -7, 9, -11, ... with
+	 * Jacobi symbol (D/n) = -1, P = 1 and Q = (1 - D) / 4.
+	 */
+	static boolean isStrongLucasProbablePrime(BigInteger n) {
+		if (isPerfectSquare(n))
+			return false;
+		long d = 5;
+		while (true) {
+			int jacobi = jacobi(d, n);
+			if (jacobi == -1)
+				break;
+			if (jacobi == 0 && BigInteger.valueOf(Math.abs(d)).compareTo(n) != 0)
+				return false;
+			d = d > 0 ? -d - 2 : -d + 2;
+		}
+		BigInteger bigD = BigInteger.valueOf(d), q = BigInteger.valueOf((1 - d) / 4);
+
+		// Binary evaluation of U_k, V_k and Q^k with P = 1 over the bits of
+		// n + 1 = k * 2^s, k odd.
+		BigInteger nPlusOne = n.add(BigInteger.ONE);
+		int s = nPlusOne.getLowestSetBit();
+		BigInteger k = nPlusOne.shiftRight(s);
+		BigInteger u = BigInteger.ONE, v = BigInteger.ONE, qk = q.mod(n);
+		for (int bit = k.bitLength() - 2; bit >= 0; bit--) {
+			u = u.multiply(v).mod(n);
+			v = v.multiply(v).subtract(qk.shiftLeft(1)).mod(n);
+			qk = qk.multiply(qk).mod(n);
+			if (k.testBit(bit)) {
+				BigInteger nextU = half(u.add(v), n);
+				v = half(bigD.multiply(u).add(v), n);
+				u = nextU;
+				qk = qk.multiply(q).mod(n);
+			}
+		}
+
+		if (u.signum() == 0 || v.signum() == 0)
+			return true;
+		for (int r = 1; r < s; r++) {
+			v = v.multiply(v).subtract(qk.shiftLeft(1)).mod(n);
+			if (v.signum() == 0)
+				return true;
+			qk = qk.multiply(qk).mod(n);
+		}
+		return false;
+	}
+
+	/**
+	 * Returns x / 2 modulo the odd number n.
+	 */
+	private static BigInteger half(BigInteger x, BigInteger n) {
+		x = x.mod(n);
+		if (x.testBit(0))
+			x = x.add(n);
+		return x.shiftRight(1);
+	}
+
+	/**
+	 * Returns the Jacobi symbol (a/n) for an odd positive n.
+	 */
+	static int jacobi(long a, BigInteger n) {
+		int result = 1;
+		if (a < 0) {
+			a = -a;
+			// (-1/n) = -1 if and only if n = 3 mod 4
+			if (n.testBit(1))
+				result = -result;
+		}
+		if (a == 0)
+			return n.equals(BigInteger.ONE) ? 1 : 0;
+		// Reduce a modulo n first, afterwards both arguments fit in a long.
+		long m = n.bitLength() < 63 ? n.longValue() : 0;
+		if (m != 0) {
+			if (m == 1)
+				return result;
+			a %= m;
+			if (a == 0)
+				return 0;
+		}
+		int twos = Long.numberOfTrailingZeros(a);
+		a >>= twos;
+		int nMod8 = n.intValue() & 7;
+		if ((twos & 1) == 1 && (nMod8 == 3 || nMod8 == 5))
+			result = -result;
+		if (a == 1)
+			return result;
+		// Quadratic reciprocity: (a/n) = (n/a) unless both are 3 mod 4.
+		if ((a & 3) == 3 && (nMod8 & 3) == 3)
+			result = -result;
+		return result * jacobi(n.mod(BigInteger.valueOf(a)).longValue(), a);
+	}
+
+	/**
+	 * Returns the Jacobi symbol (a/n) for a non negative a and odd positive n.
+	 */
+	static int jacobi(long a, long n) {
+		int result = 1;
+		a %= n;
+		while (a != 0) {
+			while ((a & 1) == 0) {
+				a >>= 1;
+				long r = n & 7;
+				if (r == 3 || r == 5)
+					result = -result;
+			}
+			long tmp = a;
+			a = n;
+			n = tmp;
+			if ((a & 3) == 3 && (n & 3) == 3)
+				result = -result;
+			a %= n;
+		}
+		return n == 1 ? result : 0;
+	}
+
+	static boolean isPerfectSquare(BigInteger n) {
+		BigInteger root = BigFactorization.sqrt(n);
+		return root.multiply(root).equals(n);
+	}
+
+	private static final BigInteger TWO = BigInteger.valueOf(2);
+
+	static final int[] SMALL_PRIMES = { 2, 3, 5, 7, 11, 13, 17, 19, 23, 29, 31, 37, 41, 43, 47,
+			53, 59, 61, 67, 71, 73, 79, 83, 89, 97 };
+}
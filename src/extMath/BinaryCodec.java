@@ -0,0 +1,377 @@
+package extMath;
+
+
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+
+/**
+ * This class encodes fractions and factorizations in a compact binary format
+ * and decodes them again. Every record starts with a tag byte which tells its
+ * kind:
+ *
+ * SMALL_FRACTION: the numerator and the denominator as zigzag varints, used
+ * when both fit in a long. Small values therefore take a single byte each.
+ *
+ * BIG_FRACTION: the numerator and the denominator each as a varint length
+ * followed by their two's complement bytes, in big endian order.
+ *
+ * FACTORIZATION: the amount of distinct primes as a varint, followed by the
+ * difference of every prime with the previous one and its exponent, both as
+ * varints. The factorization has the layout of ExtMath.getFactorization.
+ *
+ * The functions read and write directly at the position of the given buffer
+ * and advance it, no intermediate copy of the buffer is made. A varint
+ * stores 7 bits per byte, the highest bit of a byte tells if more bytes
+ * follow, so the format does not depend on the byte order of the buffer.
+ * When a buffer is too small to hold a record a BufferOverflowException is
+ * thrown, in which case the record has been written partially.
+ *
+ * @author Mattias De Charleroy
+ * @version 1.0
+ */
+public final class BinaryCodec {
+
+	private BinaryCodec() {
+	}
+
+	/**
+	 * Writes the given fraction to the buffer.
+	 *
+	 * @param buffer
+	 *        The buffer to write to
+	 * @param fraction
+	 *        The fraction to write
+	 */
+	public static void writeFraction(ByteBuffer buffer, Fraction fraction) {
+		buffer.put(SMALL_FRACTION);
+		putZigZag(buffer, fraction.numerator);
+		putZigZag(buffer, fraction.denominator);
+	}
+
+	/**
+	 * Writes the given fraction to the buffer. The fraction is written as a
+	 * small fraction if both its numerator and denominator fit in a long.
+	 *
+	 * @param buffer
+	 *        The buffer to write to
+	 * @param fraction
+	 *        The fraction to write
+	 */
+	public static void writeFraction(ByteBuffer buffer, BigFraction fraction) {
+		if (fitsInLong(fraction)) {
+			buffer.put(SMALL_FRACTION);
+			putZigZag(buffer, fraction.numerator.longValue());
+			putZigZag(buffer, fraction.denominator.longValue());
+		} else {
+			buffer.put(BIG_FRACTION);
+			putBigInteger(buffer, fraction.numerator);
+			putBigInteger(buffer, fraction.denominator);
+		}
+	}
+
+	/**
+	 * Writes the given factorization to the buffer.
+	 *
+	 * @param buffer
+	 *        The buffer to write to
+	 * @param factorization
+	 *        The factorization to write, in the layout of
+	 *        ExtMath.getFactorization: the distinct primes in ascending order,
+	 *        each followed by its exponent
+	 * @throws IllegalArgumentException
+	 *         Thrown when the array has an odd length, the primes are not
+	 *         positive and strictly ascending, or an exponent is negative
+	 */
+	public static void writeFactorization(ByteBuffer buffer, long[] factorization) {
+		checkFactorization(factorization);
+		buffer.put(FACTORIZATION);
+		putVarLong(buffer, factorization.length / 2);
+		long previous = 0;
+		for (int i = 0; i < factorization.length; i += 2) {
+			putVarLong(buffer, factorization[i] - previous);
+			putVarLong(buffer, factorization[i + 1]);
+			previous = factorization[i];
+		}
+	}
+
+	/**
+	 * Reads a fraction from the buffer.
+	 *
+	 * @param buffer
+	 *        The buffer to read from
+	 * @return Returns the fraction which has been read
+	 * @throws IllegalArgumentException
+	 *         Thrown when the next record is not a fraction or is malformed
+	 * @throws OverflowException
+	 *         Thrown when the numerator or denominator does not fit in an
+	 *         integer
+	 * @throws BufferUnderflowException
+	 *         Thrown when the buffer ends in the middle of the record
+	 */
+	public static Fraction readFraction(ByteBuffer buffer) {
+		byte tag = buffer.get();
+		long numerator, denominator;
+		if (tag == SMALL_FRACTION) {
+			numerator = getZigZag(buffer);
+			denominator = getZigZag(buffer);
+		} else if (tag == BIG_FRACTION) {
+			BigInteger bigNumerator = getBigInteger(buffer), bigDenominator = getBigInteger(buffer);
+			if (bigNumerator.bitLength() > 31 || bigDenominator.bitLength() > 31)
+				throw new OverflowException("The fraction does not fit in a Fraction");
+			numerator = bigNumerator.longValue();
+			denominator = bigDenominator.longValue();
+		} else
+			throw new IllegalArgumentException("The next record is not a fraction");
+		if ((int) numerator != numerator || (int) denominator != denominator)
+			throw new OverflowException("The fraction does not fit in a Fraction");
+		return new Fraction((int) numerator, (int) denominator);
+	}
+
+	/**
+	 * Reads a fraction from the buffer as a BigFraction, whether it has been
+	 * written as a small or as a big fraction.
+	 *
+	 * @param buffer
+	 *        The buffer to read from
+	 * @return Returns the fraction which has been read
+	 * @throws IllegalArgumentException
+	 *         Thrown when the next record is not a fraction or is malformed
+	 * @throws BufferUnderflowException
+	 *         Thrown when the buffer ends in the middle of the record
+	 */
+	public static BigFraction readBigFraction(ByteBuffer buffer) {
+		byte tag = buffer.get();
+		if (tag == SMALL_FRACTION) {
+			long numerator = getZigZag(buffer);
+			return new BigFraction(BigInteger.valueOf(numerator),
+					BigInteger.valueOf(getZigZag(buffer)));
+		}
+		if (tag == BIG_FRACTION) {
+			BigInteger numerator = getBigInteger(buffer);
+			return new BigFraction(numerator, getBigInteger(buffer));
+		}
+		throw new IllegalArgumentException("The next record is not a fraction");
+	}
+
+	/**
+	 * Reads a factorization from the buffer.
+	 *
+	 * @param buffer
+	 *        The buffer to read from
+	 * @return Returns the factorization which has been read, in the layout of
+	 *         ExtMath.getFactorization
+	 * @throws IllegalArgumentException
+	 *         Thrown when the next record is not a factorization or is
+	 *         malformed
+	 * @throws BufferUnderflowException
+	 *         Thrown when the buffer ends in the middle of the record
+	 */
+	public static long[] readFactorization(ByteBuffer buffer) {
+		if (buffer.get() != FACTORIZATION)
+			throw new IllegalArgumentException("The next record is not a factorization");
+		long count = getVarLong(buffer);
+		// Every pair takes at least two bytes, which bounds the allocation for
+		// corrupt counts.
+		if (count < 0 || count > buffer.remaining() / 2)
+			throw new IllegalArgumentException("Malformed factorization record");
+		long[] factorization = new long[2 * (int) count];
+		long previous = 0;
+		for (int i = 0; i < factorization.length; i += 2) {
+			long delta = getVarLong(buffer);
+			if (delta <= 0 || previous + delta <= previous)
+				throw new IllegalArgumentException("Malformed factorization record");
+			previous += delta;
+			factorization[i] = previous;
+			factorization[i + 1] = getVarLong(buffer);
+		}
+		return factorization;
+	}
+
+	/**
+	 * Returns the kind of the next record in the buffer, without advancing the
+	 * buffer: SMALL_FRACTION, BIG_FRACTION or FACTORIZATION.
+	 *
+	 * @param buffer
+	 *        The buffer to look at
+	 * @throws BufferUnderflowException
+	 *         Thrown when the buffer has no remaining bytes
+	 */
+	public static byte peekTag(ByteBuffer buffer) {
+		if (!buffer.hasRemaining())
+			throw new BufferUnderflowException();
+		return buffer.get(buffer.position());
+	}
+
+	/**
+	 * Advances the buffer past the next record without decoding it, so no
+	 * objects are created.
+	 *
+	 * @param buffer
+	 *        The buffer to advance
+	 * @throws IllegalArgumentException
+	 *         Thrown when the next record has an unknown tag or is malformed
+	 * @throws BufferUnderflowException
+	 *         Thrown when the buffer ends in the middle of the record
+	 */
+	public static void skip(ByteBuffer buffer) {
+		byte tag = buffer.get();
+		if (tag == SMALL_FRACTION) {
+			getVarLong(buffer);
+			getVarLong(buffer);
+		} else if (tag == BIG_FRACTION) {
+			skipBytes(buffer, getLength(buffer));
+			skipBytes(buffer, getLength(buffer));
+		} else if (tag == FACTORIZATION) {
+			long count = getVarLong(buffer);
+			if (count < 0)
+				throw new IllegalArgumentException("Malformed factorization record");
+			for (long i = 0; i < 2 * count; i++)
+				getVarLong(buffer);
+		} else
+			throw new IllegalArgumentException("Unknown record tag " + tag);
+	}
+
+	/**
+	 * Returns the amount of bytes writeFraction writes for the given fraction.
+	 */
+	public static int encodedLength(Fraction fraction) {
+		return 1 + varLongLength(zigZag(fraction.numerator))
+				+ varLongLength(zigZag(fraction.denominator));
+	}
+
+	/**
+	 * Returns the amount of bytes writeFraction writes for the given fraction.
+	 */
+	public static int encodedLength(BigFraction fraction) {
+		if (fitsInLong(fraction))
+			return 1 + varLongLength(zigZag(fraction.numerator.longValue()))
+					+ varLongLength(zigZag(fraction.denominator.longValue()));
+		return 1 + bigIntegerLength(fraction.numerator) + bigIntegerLength(fraction.denominator);
+	}
+
+	/**
+	 * Returns the amount of bytes writeFactorization writes for the given
+	 * factorization.
+	 */
+	public static int encodedLength(long[] factorization) {
+		checkFactorization(factorization);
+		int length = 1 + varLongLength(factorization.length / 2);
+		long previous = 0;
+		for (int i = 0; i < factorization.length; i += 2) {
+			length += varLongLength(factorization[i] - previous)
+					+ varLongLength(factorization[i + 1]);
+			previous = factorization[i];
+		}
+		return length;
+	}
+
+	private static boolean fitsInLong(BigFraction fraction) {
+		return fraction.numerator.bitLength() < 64 && fraction.denominator.bitLength() < 64;
+	}
+
+	private static void checkFactorization(long[] factorization) {
+		if ((factorization.length & 1) != 0)
+			throw new IllegalArgumentException("A factorization has an even length");
+		long previous = 0;
+		for (int i = 0; i < factorization.length; i += 2) {
+			if (factorization[i] <= previous)
+				throw new IllegalArgumentException(
+						"The primes of a factorization must be positive and ascending");
+			if (factorization[i + 1] < 0)
+				throw new IllegalArgumentException("The exponents of a factorization can't be negative");
+			previous = factorization[i];
+		}
+	}
+
+	private static void putBigInteger(ByteBuffer buffer, BigInteger value) {
+		byte[] bytes = value.toByteArray();
+		putVarLong(buffer, bytes.length);
+		buffer.put(bytes);
+	}
+
+	private static BigInteger getBigInteger(ByteBuffer buffer) {
+		int length = getLength(buffer);
+		if (length == 0)
+			throw new IllegalArgumentException("Malformed big fraction record");
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new BigInteger(bytes);
+	}
+
+	private static int bigIntegerLength(BigInteger value) {
+		// toByteArray holds the sign bit as well
+		int bytes = value.bitLength() / 8 + 1;
+		return varLongLength(bytes) + bytes;
+	}
+
+	private static int getLength(ByteBuffer buffer) {
+		long length = getVarLong(buffer);
+		if (length < 0 || length > buffer.remaining())
+			throw new BufferUnderflowException();
+		return (int) length;
+	}
+
+	private static void skipBytes(ByteBuffer buffer, int length) {
+		buffer.position(buffer.position() + length);
+	}
+
+	private static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static void putZigZag(ByteBuffer buffer, long value) {
+		putVarLong(buffer, zigZag(value));
+	}
+
+	private static long getZigZag(ByteBuffer buffer) {
+		long value = getVarLong(buffer);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Writes the value as an unsigned varint.
+	 */
+	static void putVarLong(ByteBuffer buffer, long value) {
+		while ((value & ~0x7FL) != 0) {
+			buffer.put((byte) (value | 0x80));
+			value >>>= 7;
+		}
+		buffer.put((byte) value);
+	}
+
+	/**
+	 * Reads an unsigned varint.
+	 */
+	static long getVarLong(ByteBuffer buffer) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = buffer.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0)
+				return value;
+		}
+		throw new IllegalArgumentException("Malformed varint");
+	}
+
+	static int varLongLength(long value) {
+		return value == 0 ? 1 : (70 - Long.numberOfLeadingZeros(value)) / 7;
+	}
+
+	/**
+	 * The tag of a fraction whose numerator and denominator fit in a long.
+	 */
+	public static final byte SMALL_FRACTION = 1;
+
+	/**
+	 * The tag of a fraction whose numerator or denominator does not fit in a
+	 * long.
+	 */
+	public static final byte BIG_FRACTION = 2;
+
+	/**
+	 * The tag of a factorization.
+	 */
+	public static final byte FACTORIZATION = 3;
+}
@@ -0,0 +1,147 @@
+package extMath;
+
+import java.util.NoSuchElementException;
+
+/**
+ * This class iterates in ascending order over the numbers in a range which
+ * are coprime to a given number, without materializing a sieve. The numbers
+ * coprime to n repeat with a period equal to the product of the distinct
+ * prime factors of n. The iterator therefore walks a wheel of the residues
+ * coprime to the smallest prime factors and only tests the remaining large
+ * prime factors by division, so its memory use does not depend on the size
+ * of the range.
+ * 
+ * The values are returned as primitive longs, so no boxing takes place.
+ * 
+ * @author Mattias De Charleroy
+ * @version 1.0
+ */
+public final class CoprimeIterator {
+
+	/**
+	 * Initializes this iterator over the positive numbers in [lo, hi] which
+	 * are coprime to n.
+	 * 
+	 * @param n
+	 *        The number to which the returned numbers must be coprime
+	 * @param lo
+	 *        The lower bound of the range, inclusive
+	 * @param hi
+	 *        The upper bound of the range, inclusive
+	 * @throws IllegalArgumentException
+	 *         Thrown when n is not strictly positive
+	 */
+	public CoprimeIterator(long n, long lo, long hi) {
+		if (n < 1)
+			throw new IllegalArgumentException("The number must be strictly positive");
+		long[] factorization = ExtMath.getSharedFactorization(n);
+
+		int wheelPrimes = 0;
+		long modulus = 1;
+		while (2 * wheelPrimes < factorization.length
+				&& modulus * factorization[2 * wheelPrimes] <= MAX_WHEEL_MODULUS) {
+			modulus *= factorization[2 * wheelPrimes];
+			wheelPrimes++;
+		}
+
+		boolean[] struck = new boolean[(int) modulus];
+		for (int i = 0; i < wheelPrimes; i++) {
+			int prime = (int) factorization[2 * i];
+			for (int j = 0; j < modulus; j += prime)
+				struck[j] = true;
+		}
+		int count = 0;
+		for (int r = 0; r < modulus; r++)
+			if (!struck[r])
+				count++;
+		this.residues = new int[count];
+		count = 0;
+		for (int r = 0; r < modulus; r++)
+			if (!struck[r])
+				this.residues[count++] = r;
+
+		this.largePrimes = new long[factorization.length / 2 - wheelPrimes];
+		for (int i = 0; i < largePrimes.length; i++)
+			this.largePrimes[i] = factorization[2 * (wheelPrimes + i)];
+
+		this.modulus = modulus;
+		this.hi = hi;
+		lo = Math.max(lo, 1);
+		this.base = lo / modulus * modulus;
+		// advance() subtracts from hi, which may overflow for an empty range.
+		if (hi < lo)
+			return;
+		while (index < residues.length && base + residues[index] < lo)
+			index++;
+		advance();
+	}
+
+	/**
+	 * Returns whether there are more coprimes in the range.
+	 */
+	public boolean hasNext() {
+		return hasNext;
+	}
+
+	/**
+	 * Returns the next coprime in the range.
+	 * 
+	 * @throws NoSuchElementException
+	 *         Thrown when there are no more coprimes in the range
+	 */
+	public long next() {
+		if (!hasNext)
+			throw new NoSuchElementException();
+		long current = next;
+		index++;
+		advance();
+		return current;
+	}
+
+	/**
+	 * Moves to the first coprime at or after the current wheel position.
+	 */
+	private void advance() {
+		while (true) {
+			if (index == residues.length) {
+				index = 0;
+				if (base > hi - modulus) {
+					hasNext = false;
+					return;
+				}
+				base += modulus;
+			}
+			if (base > hi - residues[index]) {
+				hasNext = false;
+				return;
+			}
+			long candidate = base + residues[index];
+			if (isCoprimeToLargePrimes(candidate)) {
+				next = candidate;
+				hasNext = true;
+				return;
+			}
+			index++;
+		}
+	}
+
+	private boolean isCoprimeToLargePrimes(long candidate) {
+		for (long prime : largePrimes)
+			if (candidate % prime == 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * The largest product of prime factors for which the residues are stored.
+	 * Building the wheel thus never sieves more than about a million numbers.
+	 */
+	private static final long MAX_WHEEL_MODULUS = 1 << 20;
+
+	private final int[] residues;
+	private final long[] largePrimes;
+	private final long modulus, hi;
+	private long base, next;
+	private int index;
+	private boolean hasNext;
+}
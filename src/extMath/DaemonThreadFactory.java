@@ -0,0 +1,32 @@
+package extMath;
+
+
+import java.util.concurrent.ThreadFactory;
+
+
+/**
+ * This class creates the threads of the thread pools of this package. The
+ * threads are daemon threads, so a pool which is kept alive never keeps the
+ * virtual machine from exiting.
+ *
+ * @author Mattias De Charleroy
+ * @version 1.0
+ */
+final class DaemonThreadFactory implements ThreadFactory {
+
+	/**
+	 * Initializes this factory, all its threads get the given name.
+	 */
+	DaemonThreadFactory(String name) {
+		this.name = name;
+	}
+
+	@Override
+	public Thread newThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	private final String name;
+}
@@ -0,0 +1,252 @@
+package extMath;
+
+
+import java.util.Arrays;
+
+
+/**
+ * This class represents a matrix of doubles which is stored in a single array
+ * in row-major order. Unlike a double[][], the rows are thus adjacent in
+ * memory, which keeps the kernels of this class cache friendly. The inner
+ * loops of these kernels run over contiguous elements with unit stride, so
+ * they can be vectorised by the JIT compiler.
+ *
+ * @author Mattias De Charleroy
+ * @version 1.0
+ */
+public final class DenseMatrix {
+
+	/**
+	 * Initializes this matrix with the given dimensions, all the elements are
+	 * zero.
+	 *
+	 * @param rows
+	 *        The amount of rows of this matrix
+	 * @param columns
+	 *        The amount of columns of this matrix
+	 * @throws IllegalArgumentException
+	 *         Thrown when a dimension is negative or the matrix has more than
+	 *         Integer.MAX_VALUE elements
+	 */
+	public DenseMatrix(int rows, int columns) {
+		this(rows, columns, new double[checkedSize(rows, columns)]);
+	}
+
+	/**
+	 * Initializes this matrix with the given dimensions and elements. The
+	 * given array is used as the storage of this matrix, it is not copied.
+	 *
+	 * @param rows
+	 *        The amount of rows of this matrix
+	 * @param columns
+	 *        The amount of columns of this matrix
+	 * @param data
+	 *        The elements of this matrix in row-major order, thus the element
+	 *        on row i and column j is data[i * columns + j]
+	 * @throws IllegalArgumentException
+	 *         Thrown when the length of the array does not match the
+	 *         dimensions
+	 */
+	public DenseMatrix(int rows, int columns, double[] data) {
+		if (data.length != checkedSize(rows, columns))
+			throw new IllegalArgumentException(
+					"The amount of elements does not match the dimensions of the matrix");
+		this.rows = rows;
+		this.columns = columns;
+		this.data = data;
+	}
+
+	/**
+	 * Initializes this matrix with a copy of the given matrix.
+	 *
+	 * @param values
+	 *        The matrix to copy, all the rows must have the same length
+	 * @throws IllegalArgumentException
+	 *         Thrown when the rows do not all have the same length
+	 */
+	public DenseMatrix(double[][] values) {
+		this(values.length, values.length == 0 ? 0 : values[0].length);
+		for (int i = 0; i < rows; i++) {
+			if (values[i].length != columns)
+				throw new IllegalArgumentException("All the rows must have the same length");
+			System.arraycopy(values[i], 0, data, i * columns, columns);
+		}
+	}
+
+	/**
+	 * Returns the amount of rows of this matrix.
+	 */
+	public int getRows() {
+		return rows;
+	}
+
+	/**
+	 * Returns the amount of columns of this matrix.
+	 */
+	public int getColumns() {
+		return columns;
+	}
+
+	/**
+	 * Returns the element on the given row and column.
+	 */
+	public double get(int row, int column) {
+		return data[row * columns + column];
+	}
+
+	/**
+	 * Sets the element on the given row and column to the given value.
+	 */
+	public void set(int row, int column, double value) {
+		data[row * columns + column] = value;
+	}
+
+	/**
+	 * Returns the array in which the elements of this matrix are stored in
+	 * row-major order. Changes to this array are reflected in this matrix.
+	 */
+	public double[] getData() {
+		return data;
+	}
+
+	/**
+	 * Returns a copy of this matrix.
+	 */
+	public DenseMatrix copy() {
+		return new DenseMatrix(rows, columns, data.clone());
+	}
+
+	/**
+	 * Returns the elements of this matrix as a new two dimensional array.
+	 */
+	public double[][] toArray() {
+		double[][] values = new double[rows][];
+		for (int i = 0; i < rows; i++)
+			values[i] = Arrays.copyOfRange(data, i * columns, (i + 1) * columns);
+		return values;
+	}
+
+	/**
+	 * Returns the transpose of this matrix. The transpose is built block by
+	 * block, so both the reads and the writes stay within a few cache lines.
+	 */
+	public DenseMatrix transpose() {
+		DenseMatrix transpose = new DenseMatrix(columns, rows);
+		double[] t = transpose.data;
+		for (int ii = 0; ii < rows; ii += BLOCK_SIZE) {
+			int iEnd = Math.min(ii + BLOCK_SIZE, rows);
+			for (int jj = 0; jj < columns; jj += BLOCK_SIZE) {
+				int jEnd = Math.min(jj + BLOCK_SIZE, columns);
+				for (int i = ii; i < iEnd; i++)
+					for (int j = jj; j < jEnd; j++)
+						t[j * rows + i] = data[i * columns + j];
+			}
+		}
+		return transpose;
+	}
+
+	/**
+	 * Returns the product of this matrix with the given matrix. The product
+	 * is calculated block by block, so every block of the operands is reused
+	 * while it is in the cache.
+	 *
+	 * @param other
+	 *        The right operand of the product
+	 * @return Returns the matrix this * other
+	 * @throws IllegalArgumentException
+	 *         Thrown when the amount of columns of this matrix differs from
+	 *         the amount of rows of the other matrix
+	 */
+	public DenseMatrix multiply(DenseMatrix other) {
+		if (columns != other.rows)
+			throw new IllegalArgumentException("The dimensions of the matrices do not match");
+		int n = other.columns;
+		DenseMatrix product = new DenseMatrix(rows, n);
+		double[] a = data, b = other.data, c = product.data;
+		for (int ii = 0; ii < rows; ii += BLOCK_SIZE) {
+			int iEnd = Math.min(ii + BLOCK_SIZE, rows);
+			for (int kk = 0; kk < columns; kk += BLOCK_SIZE) {
+				int kEnd = Math.min(kk + BLOCK_SIZE, columns);
+				for (int jj = 0; jj < n; jj += BLOCK_SIZE) {
+					int jEnd = Math.min(jj + BLOCK_SIZE, n);
+					for (int i = ii; i < iEnd; i++) {
+						int cRow = i * n;
+						for (int k = kk; k < kEnd; k++) {
+							// Zero entries are not skipped, so infinite and NaN
+							// entries of the other matrix propagate as in the
+							// naive product.
+							double aik = a[i * columns + k];
+							int bRow = k * n;
+							for (int j = jj; j < jEnd; j++)
+								c[cRow + j] += aik * b[bRow + j];
+						}
+					}
+				}
+			}
+		}
+		return product;
+	}
+
+	/**
+	 * Returns the product of this matrix with the given column vector.
+	 *
+	 * @param vector
+	 *        The vector to multiply with this matrix
+	 * @return Returns the vector this * vector
+	 * @throws IllegalArgumentException
+	 *         Thrown when the length of the vector differs from the amount of
+	 *         columns of this matrix
+	 */
+	public double[] multiply(double[] vector) {
+		if (vector.length != columns)
+			throw new IllegalArgumentException(
+					"The length of the vector does not match the dimensions of the matrix");
+		double[] product = new double[rows];
+		for (int i = 0; i < rows; i++) {
+			int row = i * columns;
+			// Four independent sums hide the latency of the additions.
+			double s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+			int j = 0;
+			for (; j + 3 < columns; j += 4) {
+				s0 += data[row + j] * vector[j];
+				s1 += data[row + j + 1] * vector[j + 1];
+				s2 += data[row + j + 2] * vector[j + 2];
+				s3 += data[row + j + 3] * vector[j + 3];
+			}
+			for (; j < columns; j++)
+				s0 += data[row + j] * vector[j];
+			product[i] = (s0 + s1) + (s2 + s3);
+		}
+		return product;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < rows; i++) {
+			builder.append(i == 0 ? "[" : " ");
+			for (int j = 0; j < columns; j++) {
+				if (j > 0)
+					builder.append(' ');
+				builder.append(data[i * columns + j]);
+			}
+			builder.append(i == rows - 1 ? "]" : "\n");
+		}
+		return builder.toString();
+	}
+
+	private static int checkedSize(int rows, int columns) {
+		if (rows < 0 || columns < 0 || (long) rows * columns > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Invalid dimensions of the matrix");
+		return rows * columns;
+	}
+
+	/**
+	 * The size of the square blocks of the blocked kernels. Three blocks of
+	 * 64 x 64 doubles take 96 KiB, which fits in the L2 cache.
+	 */
+	private static final int BLOCK_SIZE = 64;
+
+	private final int rows, columns;
+	final double[] data;
+}
@@ -0,0 +1,22 @@
+package extMath;
+
+/**
+ * This interface represents a callback which receives the divisors of a
+ * number one at a time, as used by ExtMath.forEachDivisor. The divisors are
+ * passed as primitive values, so no boxing takes place.
+ * 
+ * @author Mattias De Charleroy
+ * @version 1.0
+ */
+public interface DivisorVisitor {
+
+	/**
+	 * Receives the next divisor.
+	 * 
+	 * @param divisor
+	 *        The divisor which has been found
+	 * @return Returns true if the enumeration must continue, false if it must
+	 *         stop after this divisor
+	 */
+	boolean visit(long divisor);
+}
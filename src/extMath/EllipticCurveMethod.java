@@ -0,0 +1,181 @@
+package extMath;
+
+
+import java.math.BigInteger;
+import java.util.Random;
+
+
+/**
+ * This class implements Lenstra's elliptic curve method to find factors of up
+ * to about 25 digits. The curves are Montgomery curves B*y^2 = x^3 + A*x^2 + x
+ * in the parametrization of Suyama, the points are kept in projective (X:Z)
+ * coordinates so no inversions are needed. Every curve runs a stage 1 with
+ * all the prime powers up to B1 and a stage 2 which looks for one more prime
+ * up to B2 = 100 * B1.
+ *
+ * @author Mattias De Charleroy
+ * @version 1.0
+ */
+final class EllipticCurveMethod {
+
+	private EllipticCurveMethod() {
+	}
+
+	/**
+	 * Returns a non trivial factor of the composite n, or null if none has
+	 * been found with the amount of curves suited for a number of the given
+	 * size. The effort grows with the size of n, since the quadratic sieve
+	 * which takes over afterwards gets slower for larger numbers too.
+	 */
+	static BigInteger findFactor(BigInteger n, int bits, Random random) {
+		for (int[] level : LEVELS) {
+			if (bits < level[0])
+				break;
+			for (int curve = 0; curve < level[2]; curve++) {
+				BigInteger factor = tryCurve(n, level[1], 100L * level[1], random);
+				if (factor != null)
+					return factor;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Runs a single random curve with the given bounds. Returns a non trivial
+	 * factor of n, or null if none has been found.
+	 */
+	static BigInteger tryCurve(BigInteger n, int b1, long b2, Random random) {
+		BigInteger sigma = BigInteger.valueOf(6 + random.nextInt(Integer.MAX_VALUE - 6));
+		BigInteger u = sigma.multiply(sigma).subtract(FIVE).mod(n);
+		BigInteger v = sigma.shiftLeft(2).mod(n);
+		BigInteger x = u.pow(3).mod(n), z = v.pow(3).mod(n);
+
+		// (A + 2) / 4 = (v - u)^3 * (3u + v) / (16 * u^3 * v)
+		BigInteger numerator = v.subtract(u).pow(3).multiply(u.multiply(THREE).add(v)).mod(n);
+		BigInteger denominator = x.multiply(v).shiftLeft(4).mod(n);
+		BigInteger g = denominator.gcd(n);
+		if (!g.equals(BigInteger.ONE))
+			return g.equals(n) ? null : g;
+		Curve curve = new Curve(n, numerator.multiply(denominator.modInverse(n)).mod(n));
+
+		BigInteger[] point = { x, z };
+		int[] primes = ExtMath.primesUpTo((int) b2);
+		int i = 0;
+		for (; i < primes.length && primes[i] <= b1; i++) {
+			long prime = primes[i], power = prime;
+			while (power <= b1 / prime)
+				power *= prime;
+			point = curve.multiply(point, power);
+		}
+		g = point[1].gcd(n);
+		if (!g.equals(BigInteger.ONE))
+			return g.equals(n) ? null : g;
+
+		g = stageTwo(curve, point, primes, i, b1, b2);
+		return g.equals(BigInteger.ONE) || g.equals(n) ? null : g;
+	}
+
+	/**
+	 * Looks for a prime q in (b1, b2] with [q]Q = O. Starting from an odd r,
+	 * the points [r]Q are visited in steps of 2D, and every prime q in (r, r +
+	 * 2D] is written as r + 2d. [q]Q = O if and only if [r]Q = -[2d]Q, thus if
+	 * X_r * Z_2d - X_2d * Z_r = 0 mod p. These differences are multiplied
+	 * together and a single gcd is taken at the end.
+	 */
+	private static BigInteger stageTwo(Curve curve, BigInteger[] q, int[] primes, int first,
+			int b1, long b2) {
+		BigInteger n = curve.n;
+		BigInteger[][] steps = new BigInteger[STAGE_TWO_D + 1][];
+		BigInteger[] products = new BigInteger[STAGE_TWO_D + 1];
+		steps[1] = curve.doublePoint(q);
+		steps[2] = curve.doublePoint(steps[1]);
+		for (int d = 3; d <= STAGE_TWO_D; d++)
+			steps[d] = curve.add(steps[d - 1], steps[1], steps[d - 2]);
+		for (int d = 1; d <= STAGE_TWO_D; d++)
+			products[d] = steps[d][0].multiply(steps[d][1]).mod(n);
+
+		long r = (b1 & 1) == 0 ? b1 - 1 : b1;
+		BigInteger[] current = curve.multiply(q, r);
+		BigInteger[] previous = curve.multiply(q, r - 2 * STAGE_TWO_D);
+		BigInteger g = BigInteger.ONE;
+		int i = first;
+		while (r < b2 && i < primes.length) {
+			BigInteger product = current[0].multiply(current[1]).mod(n);
+			for (; i < primes.length && primes[i] <= r + 2 * STAGE_TWO_D; i++) {
+				int d = (int) ((primes[i] - r) / 2);
+				g = g.multiply(
+						current[0].subtract(steps[d][0]).multiply(current[1].add(steps[d][1]))
+								.subtract(product).add(products[d])).mod(n);
+			}
+			BigInteger[] next = curve.add(current, steps[STAGE_TWO_D], previous);
+			previous = current;
+			current = next;
+			r += 2 * STAGE_TWO_D;
+		}
+		return g.gcd(n);
+	}
+
+	/**
+	 * The arithmetic on the x coordinates of a Montgomery curve modulo n.
+	 */
+	private static final class Curve {
+
+		Curve(BigInteger n, BigInteger a24) {
+			this.n = n;
+			this.a24 = a24;
+		}
+
+		BigInteger[] doublePoint(BigInteger[] p) {
+			BigInteger sum = p[0].add(p[1]), difference = p[0].subtract(p[1]);
+			BigInteger sumSquared = sum.multiply(sum).mod(n);
+			BigInteger differenceSquared = difference.multiply(difference).mod(n);
+			BigInteger t = sumSquared.subtract(differenceSquared);
+			return new BigInteger[] { sumSquared.multiply(differenceSquared).mod(n),
+					t.multiply(differenceSquared.add(a24.multiply(t))).mod(n) };
+		}
+
+		/**
+		 * Returns p + q given p - q.
+		 */
+		BigInteger[] add(BigInteger[] p, BigInteger[] q, BigInteger[] difference) {
+			BigInteger u = p[0].subtract(p[1]).multiply(q[0].add(q[1]));
+			BigInteger v = p[0].add(p[1]).multiply(q[0].subtract(q[1]));
+			BigInteger sum = u.add(v), diff = u.subtract(v);
+			return new BigInteger[] { difference[1].multiply(sum.multiply(sum).mod(n)).mod(n),
+					difference[0].multiply(diff.multiply(diff).mod(n)).mod(n) };
+		}
+
+		/**
+		 * Returns [k]p with the Montgomery ladder, k must be positive.
+		 */
+		BigInteger[] multiply(BigInteger[] p, long k) {
+			if (k == 1)
+				return p;
+			BigInteger[] r0 = p, r1 = doublePoint(p);
+			for (int bit = 62 - Long.numberOfLeadingZeros(k); bit >= 0; bit--) {
+				if (((k >>> bit) & 1) == 1) {
+					r0 = add(r1, r0, p);
+					r1 = doublePoint(r1);
+				} else {
+					r1 = add(r1, r0, p);
+					r0 = doublePoint(r0);
+				}
+			}
+			return r0;
+		}
+
+		final BigInteger n, a24;
+	}
+
+	/**
+	 * The effort per size of n: the minimum amount of bits of n, B1 and the
+	 * amount of curves, aimed at factors of 15, 20 and 25 digits. The effort
+	 * is kept a fraction of the time the quadratic sieve needs for n.
+	 */
+	private static final int[][] LEVELS = { { 100, 2000, 25 }, { 150, 11000, 20 },
+			{ 190, 50000, 20 } };
+
+	private static final int STAGE_TWO_D = 105;
+
+	private static final BigInteger THREE = BigInteger.valueOf(3), FIVE = BigInteger.valueOf(5);
+}
@@ -2,8 +2,11 @@ package extMath;
 
 
 import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.math.MathContext;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 
@@ -165,6 +168,20 @@ public final class ExtMath {
 		return true;
 	}
 
+	/**
+	 * This method determines if the given argument is prime or not with the
+	 * Baillie-PSW test. No composite number is known to pass this test, and
+	 * none below 2^64 does, while it is cheaper than
+	 * BigInteger.isProbablePrime with a comparable certainty.
+	 * 
+	 * @param number
+	 *        The number to determine whether it is prime or not.
+	 * @return Returns true if the argument is prime, false if it is not.
+	 */
+	public static boolean isPrime(BigInteger number) {
+		return BigPrimality.isProbablePrime(number);
+	}
+
 	/**
 	 * This function creates and returns the sieve of Eratosthenes up to the
 	 * given argument. More precisely if the number x is prime, sieve[x] ==
@@ -192,6 +209,41 @@ public final class ExtMath {
 		return sieve;
 	}
 
+	/**
+	 * Returns the primes up to and including the given bound in ascending
+	 * order. The largest table calculated so far is kept, so the factoring
+	 * classes of this package share a single sieve. The returned array may be
+	 * shared and must not be modified.
+	 */
+	static int[] primesUpTo(int bound) {
+		int[] primes = primeTable(bound);
+		int count = Arrays.binarySearch(primes, bound);
+		count = count >= 0 ? count + 1 : -count - 1;
+		return count == primes.length ? primes : Arrays.copyOf(primes, count);
+	}
+
+	private static synchronized int[] primeTable(int bound) {
+		if (primeTableBound < bound) {
+			// sieve(n) leaves n itself unmarked
+			boolean[] sieve = sieve(bound + 1);
+			int count = 0;
+			for (boolean isPrime : sieve)
+				if (isPrime)
+					count++;
+			int[] primes = new int[count];
+			count = 0;
+			for (int i = 0; i < sieve.length; i++)
+				if (sieve[i])
+					primes[count++] = i;
+			primeTable = primes;
+			primeTableBound = bound;
+		}
+		return primeTable;
+	}
+
+	private static int[] primeTable = new int[0];
+	private static int primeTableBound;
+
 	/**
 	 * This function creates and returns the sieve of coprimes of the given
 	 * number up to this number. More precisely if the number x is coprime,
@@ -232,6 +284,109 @@ public final class ExtMath {
 		return sieve;
 	}
 
+	/**
+	 * This function creates and returns a bit-packed sieve of the coprimes of
+	 * the given number in the given range. More precisely bit i of the result
+	 * is set if and only if lo + i is positive and coprime to n. Only the
+	 * range itself is stored, so ranges far beyond the int values can be
+	 * sieved piece by piece.
+	 * 
+	 * @param n
+	 *        The number to which the coprimes must be found
+	 * @param lo
+	 *        The lower bound of the range, inclusive
+	 * @param hi
+	 *        The upper bound of the range, inclusive
+	 * @return Returns the sieve of coprimes of n in the range [lo, hi]
+	 * @throws IllegalArgumentException
+	 *         Thrown when n is not strictly positive, or when the range
+	 *         contains more than Integer.MAX_VALUE numbers
+	 */
+	public static BitSet coPrimeSieve(long n, long lo, long hi) {
+		if (n < 1)
+			throw new IllegalArgumentException("The number must be strictly positive");
+		if (hi < lo)
+			return new BitSet();
+		// A difference which overflows is negative.
+		if (hi - lo < 0 || hi - lo >= Integer.MAX_VALUE)
+			throw new IllegalArgumentException("The range is too large to be sieved at once");
+		int length = (int) (hi - lo + 1);
+		BitSet sieve = new BitSet(length);
+		long start = Math.max(lo, 1);
+		if (hi < start)
+			return sieve;
+		sieve.set((int) (start - lo), length);
+		long[] factorization = getSharedFactorization(n);
+		for (int i = 0; i < factorization.length; i += 2) {
+			long prime = factorization[i];
+			long offset = (prime - start % prime) % prime;
+			// The indices are below 2^31 and the steps below 2^63, so an
+			// index which overflows becomes negative.
+			for (long j = start - lo + offset; j >= 0 && j < length; j += prime)
+				sieve.clear((int) j);
+		}
+		return sieve;
+	}
+
+	/**
+	 * Returns the amount of positive numbers in the range [lo, hi] which are
+	 * coprime to n. The count is calculated by inclusion-exclusion over the
+	 * square-free divisors of n, so it takes at most 2^k steps where k is the
+	 * amount of distinct prime factors of n, regardless of the size of the
+	 * range.
+	 * 
+	 * @param n
+	 *        The number to which the counted numbers must be coprime
+	 * @param lo
+	 *        The lower bound of the range, inclusive
+	 * @param hi
+	 *        The upper bound of the range, inclusive
+	 * @return Returns the amount of numbers in [lo, hi] which are coprime to n
+	 * @throws IllegalArgumentException
+	 *         Thrown when n is not strictly positive
+	 */
+	public static long countCoprimes(long n, long lo, long hi) {
+		if (n < 1)
+			throw new IllegalArgumentException("The number must be strictly positive");
+		lo = Math.max(lo, 1);
+		if (hi < lo)
+			return 0;
+		return countMultiplesFree(getSharedFactorization(n), 0, 1, lo - 1, hi);
+	}
+
+	/**
+	 * Returns the sum of mu(d) * (amount of multiples of d in (below, hi]) for
+	 * all the square-free d = divisor * (product of primes from index on).
+	 * Divisors larger than hi have no multiples and are pruned.
+	 */
+	private static long countMultiplesFree(long[] factorization, int index, long divisor,
+			long below, long hi) {
+		long count = hi / divisor - below / divisor;
+		for (int i = index; i < factorization.length; i += 2) {
+			long prime = factorization[i];
+			if (divisor > hi / prime)
+				break;
+			count -= countMultiplesFree(factorization, i + 2, divisor * prime, below, hi);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns an iterator over the positive numbers in [lo, hi] which are
+	 * coprime to n, in ascending order. See CoprimeIterator.
+	 * 
+	 * @param n
+	 *        The number to which the returned numbers must be coprime
+	 * @param lo
+	 *        The lower bound of the range, inclusive
+	 * @param hi
+	 *        The upper bound of the range, inclusive
+	 * @return Returns an iterator over the coprimes of n in the range
+	 */
+	public static CoprimeIterator coprimes(long n, long lo, long hi) {
+		return new CoprimeIterator(n, lo, hi);
+	}
+
 	/**
 	 * This function returns all the prime factors and it's exponents of the
 	 * given number
@@ -248,7 +403,94 @@ public final class ExtMath {
 	 * 
 	 */
 	public static ArrayList<Long> getPrimeFactors(long number) {
-		ArrayList<Long> primeFactors = new ArrayList<Long>();
+		long[] factorization = getSharedFactorization(number);
+		ArrayList<Long> primeFactors = new ArrayList<Long>(factorization.length);
+		for (long factor : factorization)
+			primeFactors.add(factor);
+		return primeFactors;
+	}
+
+	/**
+	 * This function returns all the prime factors and it's exponents of the
+	 * given number. Small factors are found by trial division and Pollard's
+	 * rho method, medium sized ones by the elliptic curve method and the
+	 * remaining ones by the self-initialising quadratic sieve, which sieves on
+	 * all the available processors. Numbers up to about 60 digits are
+	 * factored in seconds to minutes, depending on the size of their second
+	 * largest prime factor.
+	 * 
+	 * @param number
+	 *        The argument of which the prime factorization must be found
+	 * @return Returns a list of BigIntegers in the layout of
+	 *         getPrimeFactors(long): the ith place in the list represents the
+	 *         i/2 th smallest prime factor if i is even, if i is uneven it
+	 *         represents the exponent of the (i-1)/2 th prime factor.
+	 * @throws IllegalArgumentException
+	 *         Thrown when the number is not strictly positive
+	 */
+	public static ArrayList<BigInteger> getPrimeFactors(BigInteger number) {
+		if (number.signum() <= 0)
+			throw new IllegalArgumentException("The number must be strictly positive");
+		return BigFactorization.factor(number);
+	}
+
+	/**
+	 * This function returns all the prime factors and their exponents of the
+	 * given number in a primitive array. If a factorization cache has been
+	 * installed with setFactorizationCache, the factorization is looked up in
+	 * and stored into this cache.
+	 * 
+	 * @param number
+	 *        The argument of which the prime factorization must be found
+	 * @return Returns an array where the ith element represents the i/2 th
+	 *         smallest prime factor if i is even, if i is uneven it represents
+	 *         the exponent of the (i-1)/2 th prime factor. The layout is thus
+	 *         equal to the one of getPrimeFactors(long).
+	 */
+	public static long[] getFactorization(long number) {
+		FactorizationCache cache = factorizationCache;
+		if (cache == null)
+			return factorize(number);
+		return cache.get(number);
+	}
+
+	/**
+	 * Returns the factorization like getFactorization(long), but without
+	 * copying an array held by the cache. The callers within this package
+	 * only read the result.
+	 */
+	static long[] getSharedFactorization(long number) {
+		FactorizationCache cache = factorizationCache;
+		if (cache == null)
+			return factorize(number);
+		return cache.getShared(number);
+	}
+
+	/**
+	 * Installs the given cache which is used from now on by all the
+	 * factorization based methods of this class: getPrimeFactors,
+	 * getDivisors, getNumberOfDivisors, getSumDivisors and phi.
+	 * 
+	 * @param cache
+	 *        The cache to use, or null to calculate every factorization again
+	 */
+	public static void setFactorizationCache(FactorizationCache cache) {
+		factorizationCache = cache;
+	}
+
+	/**
+	 * Returns the factorization cache which is currently installed, or null
+	 * if there is none.
+	 */
+	public static FactorizationCache getFactorizationCache() {
+		return factorizationCache;
+	}
+
+	private static volatile FactorizationCache factorizationCache;
+
+	static long[] factorize(long number) {
+		long[] primeFactors = new long[2 * MAX_DISTINCT_PRIME_FACTORS];
+		int size = 0;
 		long exp = 0;
 
 		if (number % 2 == 0) {
@@ -258,8 +500,8 @@ public final class ExtMath {
 				number /= 2;
 				exp++;
 			}
-			primeFactors.add(2L);
-			primeFactors.add(exp);
+			primeFactors[size++] = 2;
+			primeFactors[size++] = exp;
 		}
 		for (long j = 3; number != 1 && j <= number / j; j += 2) {
 			exp = 0;
@@ -270,51 +512,161 @@ public final class ExtMath {
 					number /= j;
 					exp++;
 				}
-				primeFactors.add(j);
-				primeFactors.add(exp);
+				primeFactors[size++] = j;
+				primeFactors[size++] = exp;
 			}
 		}
 
 		if (number > 1) {
-			primeFactors.add(number);
-			primeFactors.add(1L);
+			primeFactors[size++] = number;
+			primeFactors[size++] = 1;
 		}
 
-		return primeFactors;
+		return Arrays.copyOf(primeFactors, size);
 	}
 
+	/**
+	 * The product of the 16 smallest primes exceeds Long.MAX_VALUE, so no long
+	 * has more distinct prime factors than this.
+	 */
+	private static final int MAX_DISTINCT_PRIME_FACTORS = 15;
+
 	/**
 	 * This method returns all the divisors of the given number. The divisors
 	 * are calculated using the prime factorization of the number
 	 * 
 	 * @param number
 	 *        The number whose divisors are to be found
-	 * @return Returns a list of all the divisors of the argument
+	 * @return Returns a list of all the divisors of the argument in ascending
+	 *         order
 	 */
 	public static ArrayList<Long> getDivisors(long number) {
-		ArrayList<Long> primes = getPrimeFactors(number);
-		return getDivisorsLong(primes);
+		long[] divisors = getDivisors(getSharedFactorization(number), true);
+		ArrayList<Long> list = new ArrayList<Long>(divisors.length);
+		for (long divisor : divisors)
+			list.add(divisor);
+		return list;
 	}
 
-	private static ArrayList<Long> getDivisorsLong(ArrayList<Long> primes) {
-		ArrayList<Long> divisors = new ArrayList<Long>();
-		if (primes.size() == 0) {
-			divisors.add(1L);
-			return divisors;
-		}
+	/**
+	 * This method returns all the divisors of the number with the given prime
+	 * factorization in a primitive array. The divisors are calculated with
+	 * exact integer multiplication.
+	 * 
+	 * @param factorization
+	 *        The prime factorization of the number whose divisors are to be
+	 *        found, in the layout of getFactorization(long)
+	 * @param sorted
+	 *        Whether the divisors must be returned in ascending order
+	 * @return Returns an array of all the divisors of the number
+	 */
+	public static long[] getDivisors(long[] factorization, boolean sorted) {
+		return getDivisors(factorization, Long.MAX_VALUE, sorted);
+	}
 
-		long workingPrime = primes.remove(0);
-		long expPrime = primes.remove(0);
-		ArrayList<Long> otherDivisors = getDivisorsLong(primes);
-		for (long i = expPrime; i >= 0; i--) {
-			for (long divisor : otherDivisors) {
-				divisors.add((long) (divisor * Math.pow(workingPrime, i)));
+	/**
+	 * This method returns all the divisors of the number with the given prime
+	 * factorization which are smaller than or equal to the given limit.
+	 * Divisors larger than the limit are never calculated, so this is also
+	 * cheap for numbers with a huge amount of divisors.
+	 * 
+	 * @param factorization
+	 *        The prime factorization of the number whose divisors are to be
+	 *        found, in the layout of getFactorization(long)
+	 * @param limit
+	 *        The largest divisor which must be returned
+	 * @param sorted
+	 *        Whether the divisors must be returned in ascending order
+	 * @return Returns an array of all the divisors of the number which are
+	 *         smaller than or equal to the limit
+	 */
+	public static long[] getDivisors(long[] factorization, long limit, boolean sorted) {
+		if (limit < 1)
+			return new long[0];
+		int numberOfDivisors = 1;
+		for (int i = 1; i < factorization.length; i += 2)
+			numberOfDivisors *= (int) (factorization[i] + 1);
+
+		// Every power of a prime multiplies the divisors found for the
+		// previous power of that prime, starting from the divisors built
+		// from the smaller primes.
+		long[] divisors = new long[numberOfDivisors];
+		divisors[0] = 1;
+		int size = 1;
+		for (int i = 0; i < factorization.length; i += 2) {
+			long prime = factorization[i], bound = limit / prime;
+			int levelStart = 0, levelEnd = size;
+			for (long exp = factorization[i + 1]; exp > 0 && levelStart < levelEnd; exp--) {
+				int nextStart = size;
+				for (int j = levelStart; j < levelEnd; j++)
+					if (divisors[j] <= bound)
+						divisors[size++] = divisors[j] * prime;
+				levelStart = nextStart;
+				levelEnd = size;
 			}
 		}
 
+		if (size < divisors.length)
+			divisors = Arrays.copyOf(divisors, size);
+		if (sorted)
+			Arrays.sort(divisors);
 		return divisors;
 	}
 
+	/**
+	 * This method passes all the divisors of the number with the given prime
+	 * factorization to the given visitor, without storing them. The
+	 * enumeration stops as soon as the visitor returns false.
+	 * 
+	 * @param factorization
+	 *        The prime factorization of the number whose divisors are to be
+	 *        found, in the layout of getFactorization(long)
+	 * @param visitor
+	 *        The visitor which receives the divisors
+	 * @return Returns true if all the divisors have been visited, false if
+	 *         the visitor stopped the enumeration
+	 */
+	public static boolean forEachDivisor(long[] factorization, DivisorVisitor visitor) {
+		return forEachDivisor(factorization, Long.MAX_VALUE, visitor);
+	}
+
+	/**
+	 * This method passes all the divisors of the number with the given prime
+	 * factorization which are smaller than or equal to the given limit to the
+	 * given visitor, without storing them. The enumeration stops as soon as
+	 * the visitor returns false. The divisors are not visited in ascending
+	 * order.
+	 * 
+	 * @param factorization
+	 *        The prime factorization of the number whose divisors are to be
+	 *        found, in the layout of getFactorization(long)
+	 * @param limit
+	 *        The largest divisor which must be visited
+	 * @param visitor
+	 *        The visitor which receives the divisors
+	 * @return Returns true if all the divisors have been visited, false if
+	 *         the visitor stopped the enumeration
+	 */
+	public static boolean forEachDivisor(long[] factorization, long limit, DivisorVisitor visitor) {
+		if (limit < 1)
+			return true;
+		return visitDivisors(factorization, 0, 1, limit, visitor);
+	}
+
+	private static boolean visitDivisors(long[] factorization, int index, long divisor,
+			long limit, DivisorVisitor visitor) {
+		if (index == factorization.length)
+			return visitor.visit(divisor);
+		long prime = factorization[index], exp = factorization[index + 1];
+		for (long i = 0;; i++) {
+			if (!visitDivisors(factorization, index + 2, divisor, limit, visitor))
+				return false;
+			if (i == exp || divisor > limit / prime)
+				return true;
+			divisor *= prime;
+		}
+	}
+
 	/**
 	 * This function returns all the prime factors and it's exponents of the
 	 * given number
@@ -332,6 +684,11 @@ public final class ExtMath {
 	 */
 	public static ArrayList<Integer> getPrimeFactors(int number) {
 		ArrayList<Integer> primeFactors = new ArrayList<Integer>();
+		if (factorizationCache != null) {
+			for (long factor : getSharedFactorization(number))
+				primeFactors.add((int) factor);
+			return primeFactors;
+		}
 		int exp = 0;
 
 		if (number % 2 == 0) {
@@ -372,30 +729,15 @@ public final class ExtMath {
 	 * 
 	 * @param number
 	 *        The number whose divisors are to be found
-	 * @return Returns a list of all the divisors of the argument
+	 * @return Returns a list of all the divisors of the argument in ascending
+	 *         order
 	 */
 	public static ArrayList<Integer> getDivisors(int number) {
-		ArrayList<Integer> primes = getPrimeFactors(number);
-		return getDivisorsInt(primes);
-	}
-
-	private static ArrayList<Integer> getDivisorsInt(ArrayList<Integer> primes) {
-		ArrayList<Integer> divisors = new ArrayList<Integer>();
-		if (primes.size() == 0) {
-			divisors.add(1);
-			return divisors;
-		}
-
-		int workingPrime = primes.remove(0);
-		int expPrime = primes.remove(0);
-		ArrayList<Integer> otherDivisors = getDivisorsInt(primes);
-		for (int i = expPrime; i >= 0; i--) {
-			for (int divisor : otherDivisors) {
-				divisors.add((int) (divisor * Math.pow(workingPrime, i)));
-			}
-		}
-
-		return divisors;
+		long[] divisors = getDivisors(getSharedFactorization(number), true);
+		ArrayList<Integer> list = new ArrayList<Integer>(divisors.length);
+		for (long divisor : divisors)
+			list.add((int) divisor);
+		return list;
 	}
 
 	/**
@@ -423,10 +765,7 @@ public final class ExtMath {
 	 * @return Returns the sum of all the divisors, this includes 1 and itself
 	 */
 	public static long getSumDivisors(int number) {
-		long sum = 0;
-		for (Integer divisor : getDivisors(number))
-			sum += divisor;
-		return sum;
+		return getSumDivisors((long) number);
 	}
 
 	/**
@@ -438,10 +777,10 @@ public final class ExtMath {
 	 *         includes 1 and itself
 	 */
 	public static int getNumberOfDivisors(long number) {
-		ArrayList<Long> primeFactors = getPrimeFactors(number);
+		long[] factorization = getSharedFactorization(number);
 		int numberOfDivisors = 1;
-		for (int i = 1; i < primeFactors.size(); i += 2) {
-			numberOfDivisors *= (primeFactors.get(i) + 1);
+		for (int i = 1; i < factorization.length; i += 2) {
+			numberOfDivisors *= (factorization[i] + 1);
 		}
 		return numberOfDivisors;
 	}
@@ -454,9 +793,16 @@ public final class ExtMath {
 	 * @return Returns the sum of all the divisors, this includes 1 and itself
 	 */
 	public static long getSumDivisors(long number) {
-		long sum = 0;
-		for (Long divisor : getDivisors(number))
-			sum += divisor;
+		long[] factorization = getSharedFactorization(number);
+		long sum = 1;
+		for (int i = 0; i < factorization.length; i += 2) {
+			long primePower = 1, primeSum = 1;
+			for (long exp = factorization[i + 1]; exp > 0; exp--) {
+				primePower *= factorization[i];
+				primeSum += primePower;
+			}
+			sum *= primeSum;
+		}
 		return sum;
 	}
 
@@ -535,6 +881,396 @@ public final class ExtMath {
 		return x;
 	}
 
+	/**
+	 * This function solves the linear system A*x = b for a matrix A and the
+	 * right hand sides in the columns of b, equal to solveSystem(A,b) for two
+	 * dimensional arrays. The matrix A is factored in a single flat copy with
+	 * partial pivoting on the element with the largest absolute value, no
+	 * expanded matrix [A|b] is built.
+	 * 
+	 * @param A
+	 *        The square matrix which is a representation of the linear
+	 *        equations
+	 * @param b
+	 *        The argument where b = A*x, every column is a right hand side
+	 * @return Returns the solutions of the linear system as column vectors
+	 * @throws NoSingleSolutionException
+	 *         Thrown when the matrix A is singular, thus when the system has
+	 *         none, or an infinite amount of solutions.
+	 * @throws IllegalArgumentException
+	 *         Thrown when A is not square or b has a different amount of rows
+	 */
+	public static DenseMatrix solveSystem(DenseMatrix A, DenseMatrix b)
+			throws NoSingleSolutionException {
+		int n = A.getRows();
+		if (A.getColumns() != n || b.getRows() != n)
+			throw new IllegalArgumentException("The dimensions of the system do not match");
+		double[] lu = A.data.clone();
+		int[] pivots = new int[n];
+		luDecompose(lu, n, pivots);
+		DenseMatrix x = b.copy();
+		luSolve(lu, n, pivots, x.data, b.getColumns());
+		return x;
+	}
+
+	private static void luDecompose(double[] lu, int n, int[] pivots)
+			throws NoSingleSolutionException {
+		for (int k = 0; k < n; k++) {
+			int pivot = k;
+			for (int i = k + 1; i < n; i++)
+				if (Math.abs(lu[i * n + k]) > Math.abs(lu[pivot * n + k]))
+					pivot = i;
+			if (lu[pivot * n + k] == 0)
+				throw new NoSingleSolutionException(
+						"The system contains none, or an infinite amount of solutions");
+			pivots[k] = pivot;
+			swapRows(lu, n, k, pivot);
+
+			int kRow = k * n;
+			for (int i = k + 1; i < n; i++) {
+				int iRow = i * n;
+				double m = lu[iRow + k] /= lu[kRow + k];
+				if (m == 0)
+					continue;
+				for (int j = k + 1; j < n; j++)
+					lu[iRow + j] -= m * lu[kRow + j];
+			}
+		}
+	}
+
+	private static void luSolve(double[] lu, int n, int[] pivots, double[] x, int m) {
+		for (int k = 0; k < n; k++)
+			swapRows(x, m, k, pivots[k]);
+		for (int i = 0; i < n; i++)
+			for (int k = 0; k < i; k++) {
+				double l = lu[i * n + k];
+				if (l != 0)
+					for (int j = 0; j < m; j++)
+						x[i * m + j] -= l * x[k * m + j];
+			}
+		for (int i = n - 1; i >= 0; i--) {
+			for (int k = i + 1; k < n; k++) {
+				double u = lu[i * n + k];
+				if (u != 0)
+					for (int j = 0; j < m; j++)
+						x[i * m + j] -= u * x[k * m + j];
+			}
+			double diagonal = lu[i * n + i];
+			for (int j = 0; j < m; j++)
+				x[i * m + j] /= diagonal;
+		}
+	}
+
+	private static void swapRows(double[] values, int columns, int i, int j) {
+		if (i == j)
+			return;
+		for (int k = 0; k < columns; k++) {
+			double tmp = values[i * columns + k];
+			values[i * columns + k] = values[j * columns + k];
+			values[j * columns + k] = tmp;
+		}
+	}
+
+	/**
+	 * This function solves the linear system A*x = b with mixed precision
+	 * iterative refinement. A is factored in single precision, which halves
+	 * the memory traffic of the factorization, after which the solution is
+	 * refined with residuals calculated in double precision until the
+	 * normwise relative backward error |b - A*x| / (|A|*|x| + |b|) is at most
+	 * the given tolerance.
+	 * 
+	 * If A is too ill-conditioned for the single precision factorization, or
+	 * the refinement does not reach the tolerance within the given amount of
+	 * iterations, the system is solved again with a double precision
+	 * factorization. The result reports which of both happened.
+	 * 
+	 * @param A
+	 *        The square matrix which is a representation of the linear
+	 *        equations
+	 * @param b
+	 *        The argument where b = A*x
+	 * @param tolerance
+	 *        The largest acceptable backward error of the solution
+	 * @param maxIterations
+	 *        The largest amount of refinement steps
+	 * @return Returns the solution with the amount of refinement steps, an
+	 *         estimate of the condition number of A and the backward error
+	 * @throws NoSingleSolutionException
+	 *         Thrown when the matrix A is singular, thus when the system has
+	 *         none, or an infinite amount of solutions.
+	 * @throws IllegalArgumentException
+	 *         Thrown when A is not square or b has a different length
+	 */
+	public static RefinedSolution solveSystemRefined(DenseMatrix A, double[] b, double tolerance,
+			int maxIterations) throws NoSingleSolutionException {
+		int n = A.getRows();
+		if (A.getColumns() != n || b.length != n)
+			throw new IllegalArgumentException("The dimensions of the system do not match");
+		double[] a = A.data;
+		double normA = infinityNorm(a, n), normB = infinityNorm(b, 1);
+
+		float[] lu = new float[a.length];
+		for (int i = 0; i < a.length; i++)
+			lu[i] = (float) a[i];
+		int[] pivots = new int[n];
+		double condition = Double.POSITIVE_INFINITY;
+		boolean factored = luDecompose(lu, n, pivots);
+		if (factored)
+			condition = oneNorm(a, n) * estimateInverseOneNorm(lu, n, pivots);
+
+		int iterations = 0;
+		if (factored && condition * FLOAT_UNIT_ROUNDOFF < 0.5) {
+			double[] x = new double[n], residual = b.clone();
+			float[] correction = new float[n];
+			double previousCorrection = Double.POSITIVE_INFINITY;
+			while (true) {
+				for (int i = 0; i < n; i++)
+					correction[i] = (float) residual[i];
+				luSolve(lu, n, pivots, correction);
+				double correctionNorm = 0, solutionNorm = 0;
+				for (int i = 0; i < n; i++) {
+					x[i] += correction[i];
+					correctionNorm = Math.max(correctionNorm, Math.abs(correction[i]));
+					solutionNorm = Math.max(solutionNorm, Math.abs(x[i]));
+				}
+
+				residual(a, n, x, b, residual);
+				double denominator = normA * solutionNorm + normB;
+				double backwardError = denominator == 0 ? 0 : infinityNorm(residual, 1) / denominator;
+				if (backwardError <= tolerance)
+					return new RefinedSolution(x, iterations, condition, backwardError, false);
+				// A correction which does not shrink at least by half means
+				// the refinement stagnates and will not reach the tolerance.
+				if (iterations == maxIterations || correctionNorm > previousCorrection / 2)
+					break;
+				previousCorrection = correctionNorm;
+				iterations++;
+			}
+		}
+
+		double[] full = a.clone();
+		luDecompose(full, n, pivots);
+		double[] x = b.clone();
+		luSolve(full, n, pivots, x, 1);
+		// The single precision factors are too inaccurate to estimate the
+		// condition of the matrices which end up here.
+		condition = oneNorm(a, n) * estimateInverseOneNorm(full, n, pivots);
+		double[] residual = new double[n];
+		residual(a, n, x, b, residual);
+		double denominator = normA * infinityNorm(x, 1) + normB;
+		double backwardError = denominator == 0 ? 0 : infinityNorm(residual, 1) / denominator;
+		return new RefinedSolution(x, iterations, condition, backwardError, true);
+	}
+
+	/**
+	 * This method is equivalent with solveSystemRefined(A, b, tolerance, 30).
+	 */
+	public static RefinedSolution solveSystemRefined(DenseMatrix A, double[] b, double tolerance)
+			throws NoSingleSolutionException {
+		return solveSystemRefined(A, b, tolerance, 30);
+	}
+
+	/**
+	 * The unit roundoff of float values, 2^-24.
+	 */
+	private static final double FLOAT_UNIT_ROUNDOFF = 0x1p-24;
+
+	/**
+	 * Stores b - A*x in residual. The products are accumulated in double
+	 * precision with compensated summation.
+	 */
+	private static void residual(double[] a, int n, double[] x, double[] b, double[] residual) {
+		for (int i = 0; i < n; i++) {
+			double sum = b[i], compensation = 0;
+			for (int j = 0; j < n; j++) {
+				double term = -a[i * n + j] * x[j] - compensation;
+				double next = sum + term;
+				compensation = (next - sum) - term;
+				sum = next;
+			}
+			residual[i] = sum;
+		}
+	}
+
+	private static double infinityNorm(double[] a, int columns) {
+		double norm = 0;
+		for (int i = 0; i < a.length; i += columns) {
+			double sum = 0;
+			for (int j = 0; j < columns; j++)
+				sum += Math.abs(a[i + j]);
+			norm = Math.max(norm, sum);
+		}
+		return norm;
+	}
+
+	private static double oneNorm(double[] a, int n) {
+		double[] sums = new double[n];
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++)
+				sums[j] += Math.abs(a[i * n + j]);
+		double norm = 0;
+		for (double sum : sums)
+			norm = Math.max(norm, sum);
+		return norm;
+	}
+
+	/**
+	 * Estimates the 1-norm of the inverse of the factored matrix with Hager's
+	 * method, which only needs a few solves with the factorization and its
+	 * transpose.
+	 */
+	private static double estimateInverseOneNorm(float[] lu, int n, int[] pivots) {
+		double[] factorization = new double[lu.length];
+		for (int i = 0; i < lu.length; i++)
+			factorization[i] = lu[i];
+		return estimateInverseOneNorm(factorization, n, pivots);
+	}
+
+	private static double estimateInverseOneNorm(double[] lu, int n, int[] pivots) {
+		double[] x = new double[n], z = new double[n];
+		Arrays.fill(x, 1.0 / n);
+		double estimate = 0;
+		int previousIndex = -1;
+		for (int step = 0; step < 5; step++) {
+			double[] y = x.clone();
+			luSolve(lu, n, pivots, y, 1);
+			// The 1-norm of y is the infinity norm of y seen as a single row.
+			estimate = infinityNorm(y, n);
+			for (int i = 0; i < n; i++)
+				z[i] = y[i] >= 0 ? 1 : -1;
+			luSolveTransposed(lu, n, pivots, z);
+			int index = 0;
+			double product = 0;
+			for (int i = 0; i < n; i++) {
+				product += z[i] * x[i];
+				if (Math.abs(z[i]) > Math.abs(z[index]))
+					index = i;
+			}
+			if (Math.abs(z[index]) <= product || index == previousIndex)
+				break;
+			Arrays.fill(x, 0);
+			x[index] = 1;
+			previousIndex = index;
+		}
+		return estimate;
+	}
+
+	/**
+	 * Solves A^T*x = b in place for a matrix A factored by luDecompose, thus
+	 * U^T * L^T * P * x = b.
+	 */
+	private static void luSolveTransposed(double[] lu, int n, int[] pivots, double[] x) {
+		for (int i = 0; i < n; i++) {
+			for (int k = 0; k < i; k++)
+				x[i] -= lu[k * n + i] * x[k];
+			x[i] /= lu[i * n + i];
+		}
+		for (int i = n - 1; i >= 0; i--)
+			for (int k = i + 1; k < n; k++)
+				x[i] -= lu[k * n + i] * x[k];
+		for (int k = n - 1; k >= 0; k--)
+			swapRows(x, 1, k, pivots[k]);
+	}
+
+	/**
+	 * Single precision equivalent of luDecompose(double[], int, int[]).
+	 * Returns false instead of throwing when a pivot is zero, since the
+	 * matrix may still be regular in double precision.
+	 */
+	private static boolean luDecompose(float[] lu, int n, int[] pivots) {
+		for (int k = 0; k < n; k++) {
+			int pivot = k;
+			for (int i = k + 1; i < n; i++)
+				if (Math.abs(lu[i * n + k]) > Math.abs(lu[pivot * n + k]))
+					pivot = i;
+			if (lu[pivot * n + k] == 0)
+				return false;
+			pivots[k] = pivot;
+			if (pivot != k)
+				for (int j = 0; j < n; j++) {
+					float tmp = lu[k * n + j];
+					lu[k * n + j] = lu[pivot * n + j];
+					lu[pivot * n + j] = tmp;
+				}
+
+			int kRow = k * n;
+			for (int i = k + 1; i < n; i++) {
+				int iRow = i * n;
+				float m = lu[iRow + k] /= lu[kRow + k];
+				if (m == 0)
+					continue;
+				for (int j = k + 1; j < n; j++)
+					lu[iRow + j] -= m * lu[kRow + j];
+			}
+		}
+		return true;
+	}
+
+	private static void luSolve(float[] lu, int n, int[] pivots, float[] x) {
+		for (int k = 0; k < n; k++) {
+			float tmp = x[k];
+			x[k] = x[pivots[k]];
+			x[pivots[k]] = tmp;
+		}
+		for (int i = 0; i < n; i++)
+			for (int k = 0; k < i; k++)
+				x[i] -= lu[i * n + k] * x[k];
+		for (int i = n - 1; i >= 0; i--) {
+			for (int k = i + 1; k < n; k++)
+				x[i] -= lu[i * n + k] * x[k];
+			x[i] /= lu[i * n + i];
+		}
+	}
+
+	/**
+	 * This function returns the exact determinant of the given integer matrix.
+	 * The determinant is calculated modulo many word sized primes in parallel
+	 * and rebuilt with the Chinese remainder theorem, so the intermediate
+	 * numbers never grow, which makes it suitable for matrices of hundreds of
+	 * rows. The primes are drawn at random, and the calculation stops once
+	 * their product exceeds twice the Hadamard bound of the matrix, or
+	 * earlier once the rebuilt determinant has stayed the same for enough
+	 * more primes that the chance of a wrong result is below 2^-100. The
+	 * latter saves most of the work for matrices with large entries and a
+	 * small determinant.
+	 * 
+	 * @param A
+	 *        The square matrix whose determinant must be calculated
+	 * @return Returns the determinant of the matrix
+	 * @throws IllegalArgumentException
+	 *         Thrown when the matrix is not square
+	 */
+	public static BigInteger determinant(long[][] A) {
+		return MultiModular.determinant(A);
+	}
+
+	/**
+	 * This function solves the linear system of integer equations A*x = b
+	 * exactly, in the same way as solveSystem(A,b) solves it approximately:
+	 * every column of b is a right hand side and the solutions are the
+	 * columns of the result. The system is solved modulo many word sized
+	 * primes in parallel, the fractions are rebuilt by the Chinese remainder
+	 * theorem and rational reconstruction. The solution is checked exactly
+	 * against the system before it is returned.
+	 * 
+	 * @param A
+	 *        The square matrix which is a representation of the linear
+	 *        equations
+	 * @param b
+	 *        The argument where b = A*x
+	 * @return Returns the exact solutions of the linear system as column
+	 *         vectors of simplified fractions
+	 * @throws NoSingleSolutionException
+	 *         Thrown when the matrix A is singular, thus when the system has
+	 *         none, or an infinite amount of solutions.
+	 * @throws IllegalArgumentException
+	 *         Thrown when A is not square or b has a different amount of rows
+	 */
+	public static BigFraction[][] solveSystemExact(long[][] A, long[][] b)
+			throws NoSingleSolutionException {
+		return MultiModular.solve(A, b);
+	}
+
 	private static void backwardSubsitution(double[][] c) {
 		int n = c.length - 1;
 		for (int k = n; k >= 0; k--) {
@@ -550,7 +1286,7 @@ public final class ExtMath {
 		double pivot = c[i][i];
 		int pivotIndex = i;
 		for (int j = i + 1; j < c.length; j++)
-			if (pivot < c[j][i]) {
+			if (Math.abs(pivot) < Math.abs(c[j][i])) {
 				pivot = c[j][i];
 				pivotIndex = j;
 			}
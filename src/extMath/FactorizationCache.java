@@ -0,0 +1,403 @@
+package extMath;
+
+
+import java.util.Arrays;
+
+
+/**
+ * This class represents a size-bounded cache of prime factorizations which can
+ * safely be shared between threads. A factorization is stored in the same
+ * layout as ExtMath.getFactorization(long): a long array where the even
+ * indices hold the prime factors and the odd indices their exponents.
+ *
+ * The cache is split into independently locked stripes. Every stripe keys its
+ * entries on the primitive long value in an open-addressing table, so no
+ * boxing takes place on a lookup. Eviction follows a segmented LRU policy: a
+ * new entry enters the probationary segment and is promoted to the protected
+ * segment on its second hit. Entries which are only requested once are thus
+ * evicted before the frequently requested ones.
+ *
+ * A cache is used by ExtMath once it has been installed with
+ * ExtMath.setFactorizationCache(FactorizationCache).
+ *
+ * @author Mattias De Charleroy
+ * @version 1.0
+ */
+public final class FactorizationCache {
+
+	/**
+	 * Initializes this cache with the given maximum size and a number of
+	 * stripes based on the available processors.
+	 *
+	 * @param maximumSize
+	 *        The maximum amount of factorizations this cache holds
+	 */
+	public FactorizationCache(int maximumSize) {
+		this(maximumSize, Runtime.getRuntime().availableProcessors() * 4);
+	}
+
+	/**
+	 * Initializes this cache with the given maximum size and number of
+	 * stripes.
+	 *
+	 * @param maximumSize
+	 *        The maximum amount of factorizations this cache holds
+	 * @param stripes
+	 *        The amount of independently locked parts of this cache, this is
+	 *        rounded up to a power of two
+	 * @throws IllegalArgumentException
+	 *         Thrown when the maximum size or the amount of stripes is not
+	 *         strictly positive
+	 */
+	public FactorizationCache(int maximumSize, int stripes) {
+		if (maximumSize <= 0 || stripes <= 0)
+			throw new IllegalArgumentException(
+					"The maximum size and the amount of stripes must be strictly positive");
+		int stripeCount = Integer.highestOneBit(Math.min(stripes, maximumSize));
+		if (stripeCount < Math.min(stripes, maximumSize))
+			stripeCount <<= 1;
+		while (stripeCount > 1 && maximumSize / stripeCount == 0)
+			stripeCount >>= 1;
+
+		this.maximumSize = maximumSize;
+		this.stripes = new Stripe[stripeCount];
+		this.stripeMask = stripeCount - 1;
+		for (int i = 0; i < stripeCount; i++)
+			this.stripes[i] = new Stripe(maximumSize / stripeCount
+					+ (i < maximumSize % stripeCount ? 1 : 0));
+	}
+
+	/**
+	 * Returns the factorization of the given number. If it is not present in
+	 * this cache, it is calculated and stored.
+	 *
+	 * @param number
+	 *        The number whose factorization must be returned
+	 * @return Returns a copy of the factorization of the given number
+	 */
+	public long[] get(long number) {
+		return getShared(number).clone();
+	}
+
+	/**
+	 * Returns the cached factorization itself, without copying it, for the
+	 * callers within this package which only read it.
+	 */
+	long[] getShared(long number) {
+		long[] factorization = getSharedIfPresent(number);
+		if (factorization == null) {
+			factorization = ExtMath.factorize(number);
+			store(number, factorization);
+		}
+		return factorization;
+	}
+
+	/**
+	 * Returns the factorization of the given number if it is present in this
+	 * cache.
+	 *
+	 * @param number
+	 *        The number whose factorization must be returned
+	 * @return Returns a copy of the cached factorization of the given number,
+	 *         or null if it is not present
+	 */
+	public long[] getIfPresent(long number) {
+		long[] factorization = getSharedIfPresent(number);
+		return factorization == null ? null : factorization.clone();
+	}
+
+	private long[] getSharedIfPresent(long number) {
+		return stripeFor(number).get(number);
+	}
+
+	/**
+	 * Stores the given factorization of the given number in this cache. If
+	 * the cache is full, the least valuable entry is evicted.
+	 *
+	 * @param number
+	 *        The number whose factorization is stored
+	 * @param factorization
+	 *        The factorization of the number, a copy of it is stored
+	 */
+	public void put(long number, long[] factorization) {
+		if (factorization == null)
+			throw new NullPointerException("The factorization must not be null");
+		store(number, factorization.clone());
+	}
+
+	private void store(long number, long[] factorization) {
+		stripeFor(number).put(number, factorization);
+	}
+
+	/**
+	 * Removes all the factorizations from this cache. The statistics are left
+	 * untouched.
+	 */
+	public void clear() {
+		for (Stripe stripe : stripes)
+			stripe.clear();
+	}
+
+	/**
+	 * Returns the amount of factorizations currently in this cache.
+	 */
+	public int size() {
+		int size = 0;
+		for (Stripe stripe : stripes)
+			size += stripe.size();
+		return size;
+	}
+
+	/**
+	 * Returns the maximum amount of factorizations this cache holds.
+	 */
+	public int getMaximumSize() {
+		return maximumSize;
+	}
+
+	/**
+	 * Returns the amount of lookups which found a factorization in this cache.
+	 */
+	public long getHitCount() {
+		long hits = 0;
+		for (Stripe stripe : stripes)
+			hits += stripe.getHits();
+		return hits;
+	}
+
+	/**
+	 * Returns the amount of lookups which did not find a factorization in
+	 * this cache.
+	 */
+	public long getMissCount() {
+		long misses = 0;
+		for (Stripe stripe : stripes)
+			misses += stripe.getMisses();
+		return misses;
+	}
+
+	/**
+	 * Returns the amount of factorizations which have been evicted to make
+	 * room for new ones.
+	 */
+	public long getEvictionCount() {
+		long evictions = 0;
+		for (Stripe stripe : stripes)
+			evictions += stripe.getEvictions();
+		return evictions;
+	}
+
+	/**
+	 * Returns the fraction of lookups which found a factorization in this
+	 * cache, or 0 if no lookups have been done yet.
+	 */
+	public double getHitRate() {
+		long hits = getHitCount(), requests = hits + getMissCount();
+		return requests == 0 ? 0 : hits / (double) requests;
+	}
+
+	/**
+	 * Resets the hit, miss and eviction counts of this cache.
+	 */
+	public void resetStatistics() {
+		for (Stripe stripe : stripes)
+			stripe.resetStatistics();
+	}
+
+	@Override
+	public String toString() {
+		return "FactorizationCache[size=" + size() + ", maximumSize=" + maximumSize + ", hits="
+				+ getHitCount() + ", misses=" + getMissCount() + ", evictions="
+				+ getEvictionCount() + "]";
+	}
+
+	private Stripe stripeFor(long number) {
+		return stripes[spread(number) & stripeMask];
+	}
+
+	private static int spread(long number) {
+		long h = number * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private final int maximumSize;
+	private final Stripe[] stripes;
+	private final int stripeMask;
+
+	/**
+	 * A stripe holds its entries in preallocated parallel arrays. The table
+	 * maps a key by linear probing onto an entry index + 1 (0 marks an empty
+	 * slot), the entries are linked in two doubly linked lists which form the
+	 * probationary and protected segments.
+	 */
+	private static final class Stripe {
+
+		Stripe(int capacity) {
+			this.capacity = capacity;
+			this.protectedCapacity = Math.max(1, capacity * 4 / 5);
+			int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+			this.table = new int[tableSize];
+			this.tableMask = tableSize - 1;
+			this.keys = new long[capacity];
+			this.values = new long[capacity][];
+			this.previous = new int[capacity];
+			this.next = new int[capacity];
+			this.isProtected = new boolean[capacity];
+			clear();
+		}
+
+		synchronized long[] get(long key) {
+			int entry = find(key);
+			if (entry < 0) {
+				misses++;
+				return null;
+			}
+			hits++;
+			if (isProtected[entry]) {
+				unlink(entry);
+				linkFirst(entry, PROTECTED);
+			} else {
+				promote(entry);
+			}
+			return values[entry];
+		}
+
+		synchronized void put(long key, long[] value) {
+			int entry = find(key);
+			if (entry >= 0) {
+				values[entry] = value;
+				return;
+			}
+
+			if (size == capacity) {
+				int victim = tail[PROBATION] != NONE ? tail[PROBATION] : tail[PROTECTED];
+				removeFromTable(keys[victim]);
+				unlink(victim);
+				if (isProtected[victim])
+					protectedSize--;
+				values[victim] = null;
+				entry = victim;
+				evictions++;
+			} else {
+				entry = size++;
+			}
+
+			keys[entry] = key;
+			values[entry] = value;
+			isProtected[entry] = false;
+			linkFirst(entry, PROBATION);
+			int slot = spread(key) & tableMask;
+			while (table[slot] != 0)
+				slot = (slot + 1) & tableMask;
+			table[slot] = entry + 1;
+		}
+
+		synchronized void clear() {
+			Arrays.fill(table, 0);
+			Arrays.fill(values, null);
+			head[PROBATION] = head[PROTECTED] = tail[PROBATION] = tail[PROTECTED] = NONE;
+			size = 0;
+			protectedSize = 0;
+		}
+
+		synchronized int size() {
+			return size;
+		}
+
+		synchronized long getHits() {
+			return hits;
+		}
+
+		synchronized long getMisses() {
+			return misses;
+		}
+
+		synchronized long getEvictions() {
+			return evictions;
+		}
+
+		synchronized void resetStatistics() {
+			hits = misses = evictions = 0;
+		}
+
+		private void promote(int entry) {
+			unlink(entry);
+			if (protectedSize == protectedCapacity) {
+				int demoted = tail[PROTECTED];
+				unlink(demoted);
+				isProtected[demoted] = false;
+				protectedSize--;
+				linkFirst(demoted, PROBATION);
+			}
+			isProtected[entry] = true;
+			protectedSize++;
+			linkFirst(entry, PROTECTED);
+		}
+
+		private int find(long key) {
+			int slot = spread(key) & tableMask;
+			int entry;
+			while ((entry = table[slot]) != 0) {
+				if (keys[entry - 1] == key)
+					return entry - 1;
+				slot = (slot + 1) & tableMask;
+			}
+			return NONE;
+		}
+
+		private void removeFromTable(long key) {
+			int slot = spread(key) & tableMask;
+			while (keys[table[slot] - 1] != key)
+				slot = (slot + 1) & tableMask;
+
+			// Shift the following entries of the probe sequence back so
+			// lookups never stop early at the freed slot.
+			int free = slot;
+			slot = (slot + 1) & tableMask;
+			while (table[slot] != 0) {
+				int home = spread(keys[table[slot] - 1]) & tableMask;
+				if (((slot - home) & tableMask) >= ((slot - free) & tableMask)) {
+					table[free] = table[slot];
+					free = slot;
+				}
+				slot = (slot + 1) & tableMask;
+			}
+			table[free] = 0;
+		}
+
+		private void unlink(int entry) {
+			int segment = isProtected[entry] ? PROTECTED : PROBATION;
+			if (previous[entry] == NONE)
+				head[segment] = next[entry];
+			else
+				next[previous[entry]] = next[entry];
+			if (next[entry] == NONE)
+				tail[segment] = previous[entry];
+			else
+				previous[next[entry]] = previous[entry];
+		}
+
+		private void linkFirst(int entry, int segment) {
+			previous[entry] = NONE;
+			next[entry] = head[segment];
+			if (head[segment] == NONE)
+				tail[segment] = entry;
+			else
+				previous[head[segment]] = entry;
+			head[segment] = entry;
+		}
+
+		private static final int NONE = -1, PROBATION = 0, PROTECTED = 1;
+
+		private final int capacity, protectedCapacity, tableMask;
+		private final int[] table, previous, next;
+		private final long[] keys;
+		private final long[][] values;
+		private final boolean[] isProtected;
+		private final int[] head = new int[2], tail = new int[2];
+		private int size, protectedSize;
+		// The statistics are kept per stripe, under the lock which is held
+		// anyway, so the threads never contend on shared counters.
+		private long hits, misses, evictions;
+	}
+}
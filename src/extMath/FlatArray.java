@@ -0,0 +1,84 @@
+package extMath;
+
+import java.util.Arrays;
+
+/**
+ * This class holds a list of rows of longs of different lengths in two flat
+ * arrays, in the compressed sparse row layout: all the values one row after
+ * the other, and for every row the offset of its first value. Row i consists
+ * of the values from offsets[i] up to offsets[i + 1], so a batch of results
+ * takes two allocations instead of one per row.
+ *
+ * @author Mattias De Charleroy
+ * @version 1.0
+ */
+public final class FlatArray {
+
+	FlatArray(int[] offsets, long[] values) {
+		this.offsets = offsets;
+		this.values = values;
+	}
+
+	/**
+	 * Returns the amount of rows.
+	 */
+	public int size() {
+		return offsets.length - 1;
+	}
+
+	/**
+	 * Returns the amount of values in the given row.
+	 *
+	 * @param row
+	 *        The index of the row
+	 */
+	public int length(int row) {
+		return offsets[row + 1] - offsets[row];
+	}
+
+	/**
+	 * Returns the value at the given index of the given row.
+	 *
+	 * @param row
+	 *        The index of the row
+	 * @param index
+	 *        The index of the value within the row
+	 * @throws IndexOutOfBoundsException
+	 *         Thrown when the index is not within the row
+	 */
+	public long get(int row, int index) {
+		if (index < 0 || index >= length(row))
+			throw new IndexOutOfBoundsException("Index " + index + " is not within row " + row);
+		return values[offsets[row] + index];
+	}
+
+	/**
+	 * Returns a copy of the values of the given row.
+	 *
+	 * @param row
+	 *        The index of the row
+	 */
+	public long[] getRow(int row) {
+		return Arrays.copyOfRange(values, offsets[row], offsets[row + 1]);
+	}
+
+	/**
+	 * Returns the offsets of the rows, the array has one more element than
+	 * there are rows and its last element is the total amount of values. The
+	 * array is not copied and must not be modified.
+	 */
+	public int[] getOffsets() {
+		return offsets;
+	}
+
+	/**
+	 * Returns the values of all the rows one after the other. The array is
+	 * not copied and must not be modified.
+	 */
+	public long[] getValues() {
+		return values;
+	}
+
+	private final int[] offsets;
+	private final long[] values;
+}
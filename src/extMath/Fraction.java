@@ -1,5 +1,8 @@
 package extMath;
 
+import java.math.BigInteger;
+import java.util.ArrayList;
+
 /**
  * This class represents a fraction using integers
  * See the class BigFraction for a documentation of the functions.
@@ -53,6 +56,160 @@ public class Fraction implements Comparable<Fraction>{
 		return this.numerator/1.0/this.denominator;
 	}
 	
+	public Fraction sum(Fraction other, int maxDenominator){
+		long left = (long)this.numerator*other.denominator, right = (long)other.numerator*this.denominator;
+		long newNumerator = left + right;
+		if (((left ^ newNumerator) & (right ^ newNumerator)) < 0 || newNumerator == Long.MIN_VALUE)
+			return toFraction(toBigFraction().add(other.toBigFraction(), BigInteger.valueOf(maxDenominator)));
+		return limitDenominator(newNumerator, (long)this.denominator*other.denominator, maxDenominator);
+	}
+	
+	public Fraction substract(Fraction other, int maxDenominator){
+		return sum(other.negate(), maxDenominator);
+	}
+	
+	public Fraction multiply(Fraction other, int maxDenominator){
+		return limitDenominator((long)this.numerator*other.numerator, (long)this.denominator*other.denominator, maxDenominator);
+	}
+	
+	public Fraction divide(Fraction other, int maxDenominator){
+		return multiply(other.inverse(), maxDenominator);
+	}
+	
+	public long[] continuedFraction(){
+		ArrayList<Long> terms = new ArrayList<Long>();
+		long n = this.numerator, d = this.denominator;
+		if (d < 0){
+			n = -n;
+			d = -d;
+		}
+		while (d != 0){
+			long term = floorDivide(n, d);
+			terms.add(term);
+			long remainder = n - term*d;
+			n = d;
+			d = remainder;
+		}
+		long[] result = new long[terms.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = terms.get(i);
+		return result;
+	}
+	
+	public ArrayList<Fraction> convergents(){
+		long[] terms = continuedFraction();
+		ArrayList<Fraction> convergents = new ArrayList<Fraction>(terms.length);
+		long p0 = 0, q0 = 1, p1 = 1, q1 = 0;
+		for (long term : terms){
+			long p2 = p0 + term*p1, q2 = q0 + term*q1;
+			convergents.add(toFraction(p2, q2));
+			p0 = p1;
+			q0 = q1;
+			p1 = p2;
+			q1 = q2;
+		}
+		return convergents;
+	}
+	
+	public Fraction limitDenominator(int maxDenominator){
+		return limitDenominator(this.numerator, this.denominator, maxDenominator);
+	}
+	
+	public static Fraction valueOf(double value, int maxDenominator){
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			throw new IllegalArgumentException("Only finite values can be represented as a fraction");
+		long bits = Double.doubleToLongBits(value);
+		int exponent = (int)((bits >> 52) & 0x7FF);
+		long mantissa = bits & 0xFFFFFFFFFFFFFL;
+		if (exponent == 0)
+			exponent++;
+		else
+			mantissa |= 1L << 52;
+		// value = mantissa * 2^(exponent - 1075)
+		exponent -= 1075;
+		if (mantissa != 0){
+			int zeros = Long.numberOfTrailingZeros(mantissa);
+			mantissa >>= zeros;
+			exponent += zeros;
+		}
+		if (bits < 0)
+			mantissa = -mantissa;
+		// The trailing zeros have been stripped, so every even integer ends up
+		// here, the value is an integer and only its range must be checked.
+		if (exponent > 0){
+			if (Math.abs(value) > Integer.MAX_VALUE)
+				throw new OverflowException("The value is too large to be represented as a Fraction");
+			return new Fraction((int)value, 1);
+		}
+		if (exponent >= -62)
+			return limitDenominator(mantissa, 1L << -exponent, maxDenominator);
+		return toFraction(BigFraction.valueOf(value, BigInteger.valueOf(maxDenominator)));
+	}
+	
+	// See BigFraction.limitDenominator, all the intermediate values fit in a long
+	// because the result must fit in a Fraction.
+	private static Fraction limitDenominator(long n, long d, int maxDenominator){
+		if (maxDenominator <= 0)
+			throw new IllegalArgumentException("The maximal denominator must be strictly positive");
+		if (d < 0){
+			n = -n;
+			d = -d;
+		}
+		long gcd = Math.abs(ExtMath.gcd(n, d));
+		n /= gcd;
+		d /= gcd;
+		if (d <= maxDenominator)
+			return toFraction(n, d);
+		
+		long p0 = 0, q0 = 1, p1 = 1, q1 = 0, x = n, y = d;
+		while (true){
+			long term = floorDivide(x, y);
+			if (q1 == 0){
+				if (term < Integer.MIN_VALUE - 1L || term > Integer.MAX_VALUE)
+					throw new OverflowException("The result does not fit in a Fraction");
+			}
+			else if (term > (maxDenominator - q0)/q1)
+				break;
+			long p2 = p0 + term*p1, q2 = q0 + term*q1;
+			long remainder = x - term*y;
+			p0 = p1;
+			q0 = q1;
+			p1 = p2;
+			q1 = q2;
+			x = y;
+			y = remainder;
+		}
+		long k = (maxDenominator - q0)/q1;
+		long pk = p0 + k*p1, qk = q0 + k*q1;
+		long error = Math.abs(p1*d - n*q1);
+		if (error <= d/(2*qk))
+			return toFraction(p1, q1);
+		return toFraction(pk, qk);
+	}
+	
+	private static long floorDivide(long n, long d){
+		long quotient = n/d;
+		if (n % d < 0)
+			quotient--;
+		return quotient;
+	}
+	
+	private static Fraction toFraction(long numerator, long denominator){
+		if ((int)numerator != numerator || (int)denominator != denominator)
+			throw new OverflowException("The result does not fit in a Fraction");
+		return new Fraction((int)numerator, (int)denominator);
+	}
+	
+	private static Fraction toFraction(BigFraction fraction){
+		if (fraction.numerator.bitLength() > 31 || fraction.denominator.bitLength() > 31)
+			throw new OverflowException("The result does not fit in a Fraction");
+		return new Fraction(fraction.numerator.intValue(), fraction.denominator.intValue());
+	}
+	
+	private BigFraction toBigFraction(){
+		return new BigFraction(BigInteger.valueOf(this.numerator), BigInteger.valueOf(this.denominator));
+	}
+	
 	public final int numerator, denominator;
 	
 	@Override
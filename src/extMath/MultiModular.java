@@ -0,0 +1,567 @@
+package extMath;
+
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/**
+ * This class calculates determinants and solutions of linear systems of
+ * integer matrices exactly, without the growth of the intermediate numbers of
+ * rational elimination. The matrix is reduced modulo many primes between
+ * 2^30 and 2^31, every prime is eliminated independently in Montgomery
+ * arithmetic on longs, and the exact result is rebuilt with the Chinese remainder theorem.
+ * The primes are handled in rounds of one task per processor, on a pool which
+ * is shared by all the calls.
+ *
+ * @author Mattias De Charleroy
+ * @version 1.0
+ */
+final class MultiModular {
+
+	private MultiModular() {
+	}
+
+	/**
+	 * Returns the determinant of the given square matrix.
+	 *
+	 * The primes are drawn at random from the primes between 2^30 and 2^31.
+	 * They are added until their product exceeds twice the Hadamard bound of
+	 * the matrix, which determines the determinant uniquely, or until the
+	 * reconstructed determinant has stayed the same for enough more primes.
+	 * A wrong reconstruction D stays the same for a new prime only if that
+	 * prime divides det - D, which has at most bits / 30 prime factors above
+	 * 2^30 among the more than 5 * 10^7 primes of the pool. The amount of
+	 * primes is chosen such that a wrong result is returned with a chance
+	 * below 2^-EARLY_TERMINATION_SECURITY.
+	 */
+	static BigInteger determinant(final long[][] a) {
+		int n = checkSquare(a);
+		if (n == 0)
+			return BigInteger.ONE;
+		double bits = hadamardBits(a, null) + 2;
+		double chance = Math.min(1, (bits / 30 + 1) / PRIMES_IN_POOL);
+		int stablePrimes = (int) Math.ceil(EARLY_TERMINATION_SECURITY
+				/ -(Math.log(chance) / Math.log(2)));
+
+		Random random = new Random();
+		Set<Integer> used = new HashSet<Integer>();
+		BigInteger modulus = BigInteger.ONE, residue = BigInteger.ZERO, previous = null;
+		int stable = 0;
+		while (true) {
+			int round = roundSize();
+			List<Callable<Long>> tasks = new ArrayList<Callable<Long>>(round);
+			final int[] primes = randomPrimes(round, used, random);
+			for (final int prime : primes) {
+				tasks.add(new Callable<Long>() {
+
+					@Override
+					public Long call() {
+						return determinantModP(a, prime);
+					}
+				});
+			}
+			List<Long> results = runRound(tasks, n);
+			for (int i = 0; i < round; i++) {
+				BigInteger prime = BigInteger.valueOf(primes[i]);
+				residue = crt(residue, modulus, results.get(i), prime);
+				modulus = modulus.multiply(prime);
+
+				BigInteger determinant = symmetric(residue, modulus);
+				if (modulus.bitLength() > bits)
+					return determinant;
+				if (determinant.equals(previous)) {
+					if (++stable >= stablePrimes)
+						return determinant;
+				} else {
+					previous = determinant;
+					stable = 0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the exact solution of A*x = b, with every column of b a right
+	 * hand side. Primes which divide the determinant of A are skipped. After
+	 * every round the solution is rebuilt by rational reconstruction and
+	 * checked exactly against the system, so the result is always correct.
+	 *
+	 * @throws NoSingleSolutionException
+	 *         Thrown when A is singular
+	 */
+	static BigFraction[][] solve(final long[][] a, final long[][] b)
+			throws NoSingleSolutionException {
+		int n = checkSquare(a);
+		if (b.length != n)
+			throw new IllegalArgumentException("The dimensions of the system do not match");
+		if (n == 0)
+			return new BigFraction[0][0];
+		int m = b[0].length;
+		// Every prime which divides the determinant is above 2^30, so a
+		// regular A makes at most this many primes unlucky.
+		double maxUnlucky = hadamardBits(a, null) / 30;
+
+		BigInteger modulus = BigInteger.ONE;
+		BigInteger[] residues = new BigInteger[n * m];
+		Arrays.fill(residues, BigInteger.ZERO);
+		int next = 0, unlucky = 0;
+		while (true) {
+			int round = roundSize();
+			List<Callable<long[]>> tasks = new ArrayList<Callable<long[]>>(round);
+			final int[] primes = primes(next + round);
+			for (int i = next; i < next + round; i++) {
+				final int prime = primes[i];
+				tasks.add(new Callable<long[]>() {
+
+					@Override
+					public long[] call() {
+						return solveModP(a, b, prime);
+					}
+				});
+			}
+			List<long[]> results = runRound(tasks, n);
+			for (int i = 0; i < round; i++) {
+				long[] solution = results.get(i);
+				if (solution == null) {
+					unlucky++;
+					continue;
+				}
+				BigInteger prime = BigInteger.valueOf(primes[next + i]);
+				for (int j = 0; j < residues.length; j++)
+					residues[j] = crt(residues[j], modulus, solution[j], prime);
+				modulus = modulus.multiply(prime);
+			}
+			next += round;
+
+			if (unlucky > maxUnlucky)
+				throw new NoSingleSolutionException(
+						"The system contains none, or an infinite amount of solutions");
+			BigFraction[][] x = reconstruct(residues, modulus, n, m);
+			if (x != null && satisfies(a, b, x))
+				return x;
+		}
+	}
+
+	/**
+	 * Returns the determinant of a modulo p, by Gaussian elimination in
+	 * Montgomery form.
+	 */
+	static long determinantModP(long[][] a, int p) {
+		int n = a.length;
+		Montgomery arithmetic = new Montgomery(p);
+		long[] matrix = reduce(a, null, arithmetic);
+		long determinant = arithmetic.one;
+		for (int k = 0; k < n; k++) {
+			int pivot = findPivot(matrix, n, n, k);
+			if (pivot < 0)
+				return 0;
+			if (pivot != k) {
+				swapRows(matrix, n, k, pivot);
+				determinant = p - determinant;
+			}
+			long pivotValue = matrix[k * n + k];
+			determinant = arithmetic.multiply(determinant, pivotValue);
+			eliminateBelow(matrix, n, n, k, arithmetic.inverse(pivotValue), arithmetic);
+		}
+		return arithmetic.fromMontgomery(determinant);
+	}
+
+	/**
+	 * Returns the solution of A*x = b modulo p as n rows of m values, or null
+	 * if A is singular modulo p.
+	 */
+	static long[] solveModP(long[][] a, long[][] b, int p) {
+		int n = a.length, m = b[0].length, width = n + m;
+		Montgomery arithmetic = new Montgomery(p);
+		long[] matrix = reduce(a, b, arithmetic);
+		long[] inverses = new long[n];
+		for (int k = 0; k < n; k++) {
+			int pivot = findPivot(matrix, width, n, k);
+			if (pivot < 0)
+				return null;
+			swapRows(matrix, width, k, pivot);
+			inverses[k] = arithmetic.inverse(matrix[k * width + k]);
+			eliminateBelow(matrix, width, n, k, inverses[k], arithmetic);
+		}
+
+		long[] solution = new long[n * m];
+		for (int i = n - 1; i >= 0; i--) {
+			int row = i * width;
+			for (int j = 0; j < m; j++) {
+				long value = matrix[row + n + j];
+				for (int k = i + 1; k < n; k++)
+					value = arithmetic.subtract(value,
+							arithmetic.multiply(matrix[row + k], solution[k * m + j]));
+				solution[i * m + j] = arithmetic.multiply(value, inverses[i]);
+			}
+		}
+		for (int i = 0; i < solution.length; i++)
+			solution[i] = arithmetic.fromMontgomery(solution[i]);
+		return solution;
+	}
+
+	/**
+	 * Returns the matrix [a|b] reduced modulo p in Montgomery form, row by row
+	 * in a single array.
+	 */
+	private static long[] reduce(long[][] a, long[][] b, Montgomery arithmetic) {
+		int n = a.length, m = b == null ? 0 : b[0].length, width = n + m;
+		long[] matrix = new long[n * width];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++)
+				matrix[i * width + j] = arithmetic.toMontgomery(a[i][j]);
+			for (int j = 0; j < m; j++)
+				matrix[i * width + n + j] = arithmetic.toMontgomery(b[i][j]);
+		}
+		return matrix;
+	}
+
+	private static int findPivot(long[] matrix, int width, int n, int k) {
+		for (int i = k; i < n; i++)
+			if (matrix[i * width + k] != 0)
+				return i;
+		return -1;
+	}
+
+	private static void swapRows(long[] matrix, int width, int i, int j) {
+		if (i == j)
+			return;
+		for (int k = 0; k < width; k++) {
+			long tmp = matrix[i * width + k];
+			matrix[i * width + k] = matrix[j * width + k];
+			matrix[j * width + k] = tmp;
+		}
+	}
+
+	private static void eliminateBelow(long[] matrix, int width, int n, int k,
+			long pivotInverse, Montgomery arithmetic) {
+		int pivotRow = k * width;
+		for (int i = k + 1; i < n; i++) {
+			int row = i * width;
+			if (matrix[row + k] == 0)
+				continue;
+			long factor = arithmetic.multiply(matrix[row + k], pivotInverse);
+			for (int j = k; j < width; j++)
+				matrix[row + j] = arithmetic.subtract(matrix[row + j],
+						arithmetic.multiply(factor, matrix[pivotRow + j]));
+		}
+	}
+
+	/**
+	 * Returns the x mod (modulus * prime) with x = residue mod modulus and x =
+	 * value mod prime.
+	 */
+	private static BigInteger crt(BigInteger residue, BigInteger modulus, long value,
+			BigInteger prime) {
+		long p = prime.longValue();
+		long difference = (value - residue.mod(prime).longValue()) % p;
+		if (difference < 0)
+			difference += p;
+		long t = BigInteger.valueOf(difference)
+				.multiply(modulus.mod(prime).modInverse(prime)).mod(prime).longValue();
+		return residue.add(modulus.multiply(BigInteger.valueOf(t)));
+	}
+
+	/**
+	 * Returns the representative of the residue in (-modulus/2, modulus/2].
+	 */
+	private static BigInteger symmetric(BigInteger residue, BigInteger modulus) {
+		return residue.shiftLeft(1).compareTo(modulus) > 0 ? residue.subtract(modulus) : residue;
+	}
+
+	/**
+	 * Rebuilds the fractions u/v with |u|, |v| <= sqrt(modulus / 2) from the
+	 * residues. Returns null if some residue has no such fraction yet.
+	 */
+	private static BigFraction[][] reconstruct(BigInteger[] residues, BigInteger modulus, int n,
+			int m) {
+		BigInteger bound = BigFactorization.sqrt(modulus.shiftRight(1));
+		BigFraction[][] x = new BigFraction[n][m];
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < m; j++) {
+				x[i][j] = reconstruct(residues[i * m + j], modulus, bound);
+				if (x[i][j] == null)
+					return null;
+			}
+		return x;
+	}
+
+	/**
+	 * Rational reconstruction with the extended Euclidean algorithm, stopped
+	 * as soon as the remainder drops to the bound.
+	 */
+	private static BigFraction reconstruct(BigInteger residue, BigInteger modulus,
+			BigInteger bound) {
+		BigInteger r0 = modulus, r1 = residue, t0 = BigInteger.ZERO, t1 = BigInteger.ONE;
+		while (r1.compareTo(bound) > 0) {
+			BigInteger[] division = r0.divideAndRemainder(r1);
+			r0 = r1;
+			r1 = division[1];
+			BigInteger t = t0.subtract(division[0].multiply(t1));
+			t0 = t1;
+			t1 = t;
+		}
+		if (t1.abs().compareTo(bound) > 0 || !t1.gcd(modulus).equals(BigInteger.ONE))
+			return null;
+		if (t1.signum() < 0) {
+			r1 = r1.negate();
+			t1 = t1.negate();
+		}
+		return new BigFraction(r1, t1).simplify();
+	}
+
+	/**
+	 * Returns whether A*x = b holds exactly.
+	 */
+	private static boolean satisfies(long[][] a, long[][] b, BigFraction[][] x) {
+		int n = a.length, m = x.length == 0 ? 0 : x[0].length;
+		for (int j = 0; j < m; j++) {
+			BigInteger denominator = BigInteger.ONE;
+			for (int k = 0; k < n; k++)
+				denominator = denominator.divide(denominator.gcd(x[k][j].denominator)).multiply(
+						x[k][j].denominator);
+			BigInteger[] scaled = new BigInteger[n];
+			for (int k = 0; k < n; k++)
+				scaled[k] = x[k][j].numerator.multiply(denominator.divide(x[k][j].denominator));
+			for (int i = 0; i < n; i++) {
+				BigInteger sum = BigInteger.ZERO;
+				for (int k = 0; k < n; k++)
+					if (a[i][k] != 0)
+						sum = sum.add(scaled[k].multiply(BigInteger.valueOf(a[i][k])));
+				if (!sum.equals(denominator.multiply(BigInteger.valueOf(b[i][j]))))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns log2 of the Hadamard bound of the rows of a, extended with the
+	 * rows of b if b is not null. This bounds the determinant of every square
+	 * matrix built from the columns.
+	 */
+	private static double hadamardBits(long[][] a, long[][] b) {
+		double bits = 0;
+		for (int i = 0; i < a.length; i++) {
+			double sum = 0;
+			for (long value : a[i])
+				sum += (double) value * value;
+			if (b != null)
+				for (long value : b[i])
+					sum += (double) value * value;
+			if (sum > 0)
+				bits += Math.log(sum) / Math.log(2) / 2;
+		}
+		return bits;
+	}
+
+	private static int checkSquare(long[][] a) {
+		for (long[] row : a)
+			if (row.length != a.length)
+				throw new IllegalArgumentException("The matrix must be square");
+		return a.length;
+	}
+
+	/**
+	 * Runs the tasks of a round for an n x n matrix and returns their results
+	 * in order. Small matrices are eliminated in the calling thread, since
+	 * handing them to the pool costs more than the elimination itself.
+	 */
+	private static <T> List<T> runRound(List<Callable<T>> tasks, int n) {
+		List<T> results = new ArrayList<T>(tasks.size());
+		try {
+			if (n < PARALLEL_MINIMUM_SIZE) {
+				for (Callable<T> task : tasks)
+					results.add(task.call());
+			} else {
+				for (Future<T> future : executor().invokeAll(tasks))
+					results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted during the modular elimination", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("The modular elimination failed", e.getCause());
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException("The modular elimination failed", e);
+		}
+		return results;
+	}
+
+	private static int roundSize() {
+		return Math.max(MIN_ROUND_SIZE, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Returns the pool shared by all the calls, which is created on first use.
+	 * Its threads are daemon threads, so it is never shut down.
+	 */
+	private static synchronized ExecutorService executor() {
+		if (executor == null)
+			executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					new DaemonThreadFactory("MultiModular"));
+		return executor;
+	}
+
+	private static ExecutorService executor;
+
+	/**
+	 * Returns the given amount of distinct random primes between 2^30 and
+	 * 2^31 which are not in the used set yet, and adds them to it.
+	 */
+	private static int[] randomPrimes(int count, Set<Integer> used, Random random) {
+		int[] primes = new int[count];
+		for (int i = 0; i < count;) {
+			int candidate = (1 << 30) + random.nextInt(1 << 30) | 1;
+			if (isPrime(candidate) && used.add(candidate))
+				primes[i++] = candidate;
+		}
+		return primes;
+	}
+
+	/**
+	 * The Miller-Rabin test to the bases 2, 7 and 61, which has no pseudo
+	 * primes below 4759123141, for an odd number above 61.
+	 */
+	static boolean isPrime(int n) {
+		for (int prime : BigPrimality.SMALL_PRIMES)
+			if (n % prime == 0)
+				return false;
+		int s = Integer.numberOfTrailingZeros(n - 1);
+		long d = (n - 1) >>> s;
+		for (long base : new long[] { 2, 7, 61 }) {
+			long x = 1, power = base;
+			for (long e = d; e > 0; e >>= 1) {
+				if ((e & 1) == 1)
+					x = x * power % n;
+				power = power * power % n;
+			}
+			if (x == 1 || x == n - 1)
+				continue;
+			boolean composite = true;
+			for (int r = 1; r < s && composite; r++) {
+				x = x * x % n;
+				composite = x != n - 1;
+			}
+			if (composite)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns at least the given amount of the largest primes below 2^31, in
+	 * descending order.
+	 */
+	private static synchronized int[] primes(int count) {
+		if (primes.length < count) {
+			int[] result = Arrays.copyOf(primes, Math.max(count, 2 * primes.length));
+			int candidate = primes.length == 0 ? Integer.MAX_VALUE : primes[primes.length - 1] - 2;
+			for (int i = primes.length; i < result.length; candidate -= 2)
+				if (BigPrimality.isProbablePrime(BigInteger.valueOf(candidate)))
+					result[i++] = candidate;
+			primes = result;
+		}
+		return primes;
+	}
+
+	private static int[] primes = new int[0];
+
+	/**
+	 * Montgomery arithmetic modulo an odd p below 2^31 with R = 2^32. Every
+	 * product of two reduced values is below 2^62, and its reduction only
+	 * needs multiplications, a mask and a shift instead of a division.
+	 */
+	private static final class Montgomery {
+
+		Montgomery(long p) {
+			this.p = p;
+			// Newton's iteration doubles the amount of correct low bits of the
+			// inverse of p every step, starting from 3 bits (p*p = 1 mod 8).
+			long inverse = p;
+			for (int i = 0; i < 4; i++)
+				inverse = inverse * (2 - p * inverse) & MASK;
+			this.negativeInverse = -inverse & MASK;
+			this.one = (1L << 32) % p;
+		}
+
+		long toMontgomery(long x) {
+			x %= p;
+			if (x < 0)
+				x += p;
+			return (x << 32) % p;
+		}
+
+		long fromMontgomery(long x) {
+			return reduce(x);
+		}
+
+		long multiply(long x, long y) {
+			return reduce(x * y);
+		}
+
+		long subtract(long x, long y) {
+			long difference = x - y;
+			return difference < 0 ? difference + p : difference;
+		}
+
+		long inverse(long x) {
+			// Fermat: x^(p-2) is the inverse of x
+			long result = one;
+			for (long exponent = p - 2; exponent > 0; exponent >>= 1) {
+				if ((exponent & 1) == 1)
+					result = multiply(result, x);
+				x = multiply(x, x);
+			}
+			return result;
+		}
+
+		private long reduce(long t) {
+			long m = (t & MASK) * negativeInverse & MASK;
+			// t + m * p < 2^64 may exceed the signed range, the unsigned shift
+			// still gives the right result.
+			long reduced = (t + m * p) >>> 32;
+			return reduced >= p ? reduced - p : reduced;
+		}
+
+		private static final long MASK = 0xFFFFFFFFL;
+
+		final long p, negativeInverse, one;
+	}
+
+	/**
+	 * The least amount of primes per round, so small machines still add
+	 * enough bits per round to reach the bound in few rounds.
+	 */
+	private static final int MIN_ROUND_SIZE = 4;
+
+	/**
+	 * A lower bound on the amount of primes between 2^30 and 2^31, from which
+	 * the primes of a determinant are drawn.
+	 */
+	private static final double PRIMES_IN_POOL = 5e7;
+
+	/**
+	 * A determinant which stops early is wrong with a chance below 2 to the
+	 * power of minus this value.
+	 */
+	private static final int EARLY_TERMINATION_SECURITY = 100;
+
+	/**
+	 * The smallest size of a matrix whose primes are eliminated on the pool.
+	 */
+	private static final int PARALLEL_MINIMUM_SIZE = 32;
+}
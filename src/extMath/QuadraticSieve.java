@@ -0,0 +1,675 @@
+package extMath;
+
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+/**
+ * This class implements the self-initialising quadratic sieve (SIQS) with the
+ * single large prime variation. It finds a factor of a composite number which
+ * has no small factors and is not a perfect power, and is the method of
+ * choice for products of two primes of similar size up to about 90 digits.
+ *
+ * Relations (a*x + b)^2 = a * g(x) mod n are collected by sieving the
+ * polynomials g(x) = a*x^2 + 2*b*x + c over [-M, M). Every worker thread
+ * picks its own coefficients a, and sieves all the 2^(s-1) values of b which
+ * belong to it, so the sieving runs in parallel on all the cores. Once there
+ * are more relations than primes in the factor base, a dependency modulo 2 is
+ * found by Gaussian elimination, which yields a congruence of squares.
+ *
+ * @author Mattias De Charleroy
+ * @version 1.0
+ */
+final class QuadraticSieve {
+
+	/**
+	 * Returns a non trivial factor of the given composite number.
+	 */
+	static BigInteger findFactor(BigInteger n) {
+		return new QuadraticSieve(n).run();
+	}
+
+	private QuadraticSieve(BigInteger n) {
+		this.n = n;
+		this.multiplier = chooseMultiplier(n);
+		this.kn = n.multiply(BigInteger.valueOf(multiplier));
+
+		int digits = n.toString().length();
+		int[] parameters = parameters(digits);
+		this.halfInterval = parameters[1];
+
+		int[] candidates = ExtMath.primesUpTo(PRIME_LIMIT);
+		int[] primes = new int[parameters[0]], roots = new int[parameters[0]];
+		primes[0] = 2;
+		int size = 1;
+		BigInteger factor = null;
+		for (int i = 1; i < candidates.length && size < primes.length; i++) {
+			int p = candidates[i];
+			int residue = kn.mod(BigInteger.valueOf(p)).intValue();
+			if (residue == 0) {
+				if (multiplier % p != 0) {
+					factor = BigInteger.valueOf(p);
+					break;
+				}
+				primes[size] = p;
+				roots[size++] = 0;
+			} else if (BigPrimality.jacobi(residue, p) == 1) {
+				primes[size] = p;
+				roots[size++] = sqrtModPrime(residue, p);
+			}
+		}
+		this.smallFactor = factor;
+		this.factorBase = primes.length == size ? primes : Arrays.copyOf(primes, size);
+		this.sqrtKn = roots.length == size ? roots : Arrays.copyOf(roots, size);
+		this.logs = new byte[size];
+		for (int i = 0; i < size; i++)
+			logs[i] = (byte) Math.round(Math.log(factorBase[i]) / LN2);
+
+		int largest = factorBase[size - 1];
+		this.largePrimeBound = Math.min((long) largest * LARGE_PRIME_MULTIPLIER, (long) largest
+				* largest);
+
+		int firstSieved = 1;
+		while (firstSieved < size && factorBase[firstSieved] < SMALL_PRIME_LIMIT)
+			firstSieved++;
+		this.firstSieved = firstSieved;
+
+		double logG = Math.log(halfInterval) / LN2 + kn.bitLength() / 2.0 - 0.5;
+		this.threshold = (int) Math.round(logG - Math.log(largePrimeBound) / LN2
+				- SMALL_PRIME_CORRECTION);
+
+		// a should be about sqrt(2kn) / M, as a product of s primes from the
+		// upper half of the factor base.
+		this.logTarget = (kn.shiftLeft(1).bitLength() / 2.0) * LN2 - Math.log(halfInterval);
+		double logUpper = Math.log(factorBase[Math.max(firstSieved, size * 3 / 4)]);
+		this.aFactors = Math.max(2, (int) Math.ceil(logTarget / logUpper));
+	}
+
+	private BigInteger run() {
+		if (smallFactor != null)
+			return smallFactor;
+		int columns = factorBase.length + 1;
+		Collector collector = new Collector(columns + EXTRA_RELATIONS);
+		int threads = Runtime.getRuntime().availableProcessors();
+		ExecutorService executor = Executors.newFixedThreadPool(threads,
+				new DaemonThreadFactory("QuadraticSieve"));
+		try {
+			for (int i = 0; i < threads; i++)
+				executor.execute(new Worker(collector, new Random(n.longValue() * 31 + i)));
+			while (true) {
+				List<Relation> relations = collector.awaitRelations();
+				BigInteger factor = combine(relations, columns);
+				if (factor != null)
+					return factor;
+				collector.requestMore(EXTRA_RELATIONS);
+			}
+		} finally {
+			collector.stop();
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Finds the dependencies modulo 2 between the exponent vectors of the
+	 * relations and tries the congruences of squares they give. Returns a
+	 * non trivial factor, or null if every dependency gave a trivial one.
+	 */
+	private BigInteger combine(List<Relation> relations, int columns) {
+		int rows = relations.size();
+		int columnWords = (columns + 63) >>> 6, rowWords = (rows + 63) >>> 6;
+		long[][] matrix = new long[rows][columnWords], history = new long[rows][rowWords];
+		for (int i = 0; i < rows; i++) {
+			for (int column : relations.get(i).factors)
+				matrix[i][column >>> 6] ^= 1L << column;
+			history[i][i >>> 6] = 1L << i;
+		}
+
+		boolean[] pivot = new boolean[rows];
+		for (int column = 0; column < columns; column++) {
+			int word = column >>> 6;
+			long bit = 1L << column;
+			int pivotRow = -1;
+			for (int i = 0; i < rows; i++)
+				if (!pivot[i] && (matrix[i][word] & bit) != 0) {
+					pivotRow = i;
+					break;
+				}
+			if (pivotRow < 0)
+				continue;
+			pivot[pivotRow] = true;
+			for (int i = 0; i < rows; i++)
+				if (i != pivotRow && (matrix[i][word] & bit) != 0) {
+					xor(matrix[i], matrix[pivotRow]);
+					xor(history[i], history[pivotRow]);
+				}
+		}
+
+		for (int i = 0; i < rows; i++) {
+			if (pivot[i])
+				continue;
+			List<Relation> dependency = new ArrayList<Relation>();
+			for (int j = 0; j < rows; j++)
+				if ((history[i][j >>> 6] & (1L << j)) != 0)
+					dependency.add(relations.get(j));
+			BigInteger factor = squareRoot(dependency, columns);
+			if (factor != null)
+				return factor;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns gcd(X - Y, n) for X^2 = Y^2 mod n built from the given
+	 * relations, or null if it is trivial.
+	 */
+	private BigInteger squareRoot(List<Relation> dependency, int columns) {
+		int[] exponents = new int[columns];
+		BigInteger x = BigInteger.ONE, y = BigInteger.ONE;
+		for (Relation relation : dependency) {
+			for (BigInteger value : relation.values)
+				x = x.multiply(value).mod(n);
+			for (int column : relation.factors)
+				exponents[column]++;
+			if (relation.largePrime != 1)
+				y = y.multiply(BigInteger.valueOf(relation.largePrime)).mod(n);
+		}
+		for (int column = 1; column < columns; column++)
+			if (exponents[column] > 0)
+				y = y.multiply(
+						BigInteger.valueOf(factorBase[column - 1]).modPow(
+								BigInteger.valueOf(exponents[column] / 2), n)).mod(n);
+		BigInteger factor = x.subtract(y).gcd(n);
+		if (factor.equals(BigInteger.ONE) || factor.equals(n))
+			return null;
+		return factor;
+	}
+
+	private static void xor(long[] target, long[] source) {
+		for (int i = 0; i < target.length; i++)
+			target[i] ^= source[i];
+	}
+
+	/**
+	 * A worker repeatedly picks a new coefficient a and sieves all the
+	 * polynomials belonging to it, until the collector has enough relations.
+	 * All the state of the sieve is private to the worker.
+	 */
+	private final class Worker implements Runnable {
+
+		Worker(Collector collector, Random random) {
+			this.collector = collector;
+			this.random = random;
+			int size = factorBase.length;
+			this.sieve = new byte[2 * halfInterval];
+			this.root1 = new int[size];
+			this.root2 = new int[size];
+			this.inverseA = new int[size];
+			this.deltas = new int[aFactors][size];
+			this.isFactorOfA = new boolean[size];
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!collector.isStopped()) {
+					initialisePolynomial();
+					int polynomials = 1 << (aFactors - 1);
+					for (int i = 1; !collector.isStopped(); i++) {
+						sieve();
+						if (i == polynomials)
+							break;
+						nextPolynomial(i);
+					}
+				}
+			} catch (Throwable t) {
+				collector.fail(t);
+			}
+		}
+
+		/**
+		 * Picks a new a as the product of aFactors primes and calculates the
+		 * first b and the roots of the first polynomial.
+		 */
+		private void initialisePolynomial() {
+			int size = factorBase.length;
+			int[] indices = new int[aFactors];
+			BigInteger a;
+			boolean claimed;
+			do {
+				Arrays.fill(isFactorOfA, false);
+				double idealLog = logTarget / aFactors;
+				int center = firstSieved;
+				while (center < size - 1 && Math.log(factorBase[center]) < idealLog)
+					center++;
+				int window = Math.max(2 * aFactors, size / 8) + claimFailures;
+				int low = Math.max(firstSieved, center - window), high = Math.min(size, center
+						+ window);
+				double remainingLog = logTarget;
+				for (int l = 0; l < aFactors - 1; l++) {
+					int index;
+					do {
+						index = low + random.nextInt(high - low);
+					} while (isFactorOfA[index] || multiplier % factorBase[index] == 0);
+					isFactorOfA[index] = true;
+					indices[l] = index;
+					remainingLog -= Math.log(factorBase[index]);
+				}
+				int best = -1;
+				for (int index = firstSieved; index < size; index++)
+					if (!isFactorOfA[index]
+							&& multiplier % factorBase[index] != 0
+							&& (best < 0 || Math.abs(Math.log(factorBase[index]) - remainingLog) < Math
+									.abs(Math.log(factorBase[best]) - remainingLog)))
+						best = index;
+				isFactorOfA[best] = true;
+				indices[aFactors - 1] = best;
+
+				a = BigInteger.ONE;
+				for (int index : indices)
+					a = a.multiply(BigInteger.valueOf(factorBase[index]));
+				// Widen the window when the a's near the target run out.
+				claimed = collector.claim(a);
+				if (!claimed)
+					claimFailures++;
+			} while (!claimed);
+
+			this.a = a;
+			this.aIndices = indices;
+			this.bParts = new BigInteger[aFactors];
+			BigInteger b = BigInteger.ZERO;
+			for (int l = 0; l < aFactors; l++) {
+				int q = factorBase[indices[l]];
+				BigInteger bigQ = BigInteger.valueOf(q), cofactor = a.divide(bigQ);
+				long inverse = cofactor.mod(bigQ).modInverse(bigQ).intValue();
+				long gamma = sqrtKn[indices[l]] * inverse % q;
+				if (gamma > q / 2)
+					gamma = q - gamma;
+				bParts[l] = cofactor.multiply(BigInteger.valueOf(gamma));
+				b = b.add(bParts[l]);
+			}
+			this.b = b;
+
+			for (int j = 1; j < size; j++) {
+				if (isFactorOfA[j])
+					continue;
+				int p = factorBase[j];
+				BigInteger bigP = BigInteger.valueOf(p);
+				inverseA[j] = a.mod(bigP).modInverse(bigP).intValue();
+				int bModP = b.mod(bigP).intValue();
+				root1[j] = toIndex((long) inverseA[j] * (sqrtKn[j] - bModP + p) % p, p);
+				root2[j] = toIndex((long) inverseA[j] * (2 * p - sqrtKn[j] - bModP) % p, p);
+				for (int l = 0; l < aFactors; l++)
+					deltas[l][j] = (int) (2L * bParts[l].mod(bigP).intValue() * inverseA[j] % p);
+			}
+		}
+
+		/**
+		 * Maps a root x of g modulo p to the index x + M in the sieve array.
+		 */
+		private int toIndex(long root, int p) {
+			return (int) ((root + halfInterval) % p);
+		}
+
+		/**
+		 * Moves to polynomial i + 1 in Gray code order. Only one of the parts of
+		 * b changes its sign, so the roots change by a precomputed delta.
+		 */
+		private void nextPolynomial(int i) {
+			int l = Integer.numberOfTrailingZeros(i);
+			boolean add = ((((i >>> l) + 1) >>> 1) & 1) == 0;
+			b = add ? b.add(bParts[l].shiftLeft(1)) : b.subtract(bParts[l].shiftLeft(1));
+			int[] delta = deltas[l];
+			for (int j = 1; j < factorBase.length; j++) {
+				if (isFactorOfA[j])
+					continue;
+				int p = factorBase[j];
+				if (add) {
+					root1[j] -= delta[j];
+					if (root1[j] < 0)
+						root1[j] += p;
+					root2[j] -= delta[j];
+					if (root2[j] < 0)
+						root2[j] += p;
+				} else {
+					root1[j] += delta[j];
+					if (root1[j] >= p)
+						root1[j] -= p;
+					root2[j] += delta[j];
+					if (root2[j] >= p)
+						root2[j] -= p;
+				}
+			}
+		}
+
+		private void sieve() {
+			byte[] sieve = this.sieve;
+			Arrays.fill(sieve, (byte) 0);
+			int length = sieve.length;
+			for (int j = firstSieved; j < factorBase.length; j++) {
+				if (isFactorOfA[j])
+					continue;
+				int p = factorBase[j];
+				byte log = logs[j];
+				for (int i = root1[j]; i < length; i += p)
+					sieve[i] += log;
+				if (root2[j] != root1[j])
+					for (int i = root2[j]; i < length; i += p)
+						sieve[i] += log;
+			}
+
+			for (int i = 0; i < length; i++)
+				if ((sieve[i] & 0xFF) >= threshold)
+					checkCandidate(i);
+		}
+
+		/**
+		 * Factors g(x) for the given sieve index over the factor base and
+		 * passes the relation to the collector if it is smooth enough.
+		 */
+		private void checkCandidate(int index) {
+			BigInteger x = BigInteger.valueOf(index - halfInterval);
+			BigInteger value = a.multiply(x).add(b);
+			BigInteger g = value.multiply(value).subtract(kn).divide(a);
+
+			factorCount = 0;
+			if (g.signum() < 0) {
+				addFactor(0);
+				g = g.negate();
+			}
+			if (g.signum() == 0)
+				return;
+			for (int twos = g.getLowestSetBit(); twos > 0; twos--)
+				addFactor(1);
+			g = g.shiftRight(g.getLowestSetBit());
+			for (int aIndex : aIndices)
+				addFactor(aIndex + 1);
+
+			for (int j = 1; j < factorBase.length; j++) {
+				int p = factorBase[j];
+				if (!isFactorOfA[j]) {
+					int residue = index % p;
+					if (residue != root1[j] && residue != root2[j])
+						continue;
+				}
+				BigInteger bigP = BigInteger.valueOf(p);
+				BigInteger[] division = g.divideAndRemainder(bigP);
+				while (division[1].signum() == 0) {
+					g = division[0];
+					addFactor(j + 1);
+					division = g.divideAndRemainder(bigP);
+				}
+			}
+
+			if (g.bitLength() > 63 || g.longValue() >= largePrimeBound)
+				return;
+			collector.add(new Relation(value, Arrays.copyOf(factors, factorCount), g.longValue()));
+		}
+
+		private void addFactor(int column) {
+			if (factorCount == factors.length)
+				factors = Arrays.copyOf(factors, 2 * factorCount);
+			factors[factorCount++] = column;
+		}
+
+		private final Collector collector;
+		private final Random random;
+		private final byte[] sieve;
+		private final int[] root1, root2, inverseA;
+		private final int[][] deltas;
+		private final boolean[] isFactorOfA;
+		private BigInteger a, b;
+		private BigInteger[] bParts;
+		private int[] aIndices;
+		private int claimFailures;
+		private int[] factors = new int[32];
+		private int factorCount;
+	}
+
+	/**
+	 * A relation value^2 = product of the factors * largePrime^2 mod n. The
+	 * factors are column indices: 0 for -1 and i + 1 for factor base prime i,
+	 * repeated as often as the prime divides the relation. A relation from a
+	 * single polynomial value has a single value and a large prime of 1.
+	 */
+	private static final class Relation {
+
+		Relation(BigInteger value, int[] factors, long largePrime) {
+			this(new BigInteger[] { value }, factors, largePrime);
+		}
+
+		Relation(BigInteger[] values, int[] factors, long largePrime) {
+			this.values = values;
+			this.factors = factors;
+			this.largePrime = largePrime;
+		}
+
+		/**
+		 * Combines two partial relations with the same large prime L into a
+		 * full one: the product of both contains L^2.
+		 */
+		Relation combine(Relation other) {
+			int[] factors = Arrays.copyOf(this.factors, this.factors.length
+					+ other.factors.length);
+			System.arraycopy(other.factors, 0, factors, this.factors.length, other.factors.length);
+			return new Relation(new BigInteger[] { values[0], other.values[0] }, factors,
+					largePrime);
+		}
+
+		final BigInteger[] values;
+		final int[] factors;
+		final long largePrime;
+	}
+
+	/**
+	 * Gathers the relations of all the workers, combining partial relations
+	 * with the same large prime, until the required amount is reached.
+	 */
+	private static final class Collector {
+
+		Collector(int required) {
+			this.required = required;
+		}
+
+		synchronized void add(Relation relation) {
+			if (relation.largePrime == 1) {
+				full.add(relation);
+			} else {
+				Relation partner = partials.remove(relation.largePrime);
+				if (partner == null)
+					partials.put(relation.largePrime, relation);
+				else
+					full.add(partner.combine(relation));
+			}
+			if (full.size() >= required)
+				notifyAll();
+		}
+
+		synchronized boolean claim(BigInteger a) {
+			return usedA.add(a);
+		}
+
+		synchronized List<Relation> awaitRelations() {
+			while (full.size() < required && failure == null) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Interrupted while factoring", e);
+				}
+			}
+			if (failure != null)
+				throw new IllegalStateException("The quadratic sieve failed", failure);
+			return new ArrayList<Relation>(full);
+		}
+
+		synchronized void requestMore(int extra) {
+			required = full.size() + extra;
+		}
+
+		synchronized void fail(Throwable t) {
+			if (failure == null)
+				failure = t;
+			stopped = true;
+			notifyAll();
+		}
+
+		void stop() {
+			stopped = true;
+		}
+
+		boolean isStopped() {
+			return stopped;
+		}
+
+		private int required;
+		private final List<Relation> full = new ArrayList<Relation>();
+		private final HashMap<Long, Relation> partials = new HashMap<Long, Relation>();
+		private final Set<BigInteger> usedA = new HashSet<BigInteger>();
+		private Throwable failure;
+		private volatile boolean stopped;
+	}
+
+	/**
+	 * Chooses the multiplier k with the Knuth-Schroeppel function, which
+	 * estimates how many small primes divide the values of the polynomials
+	 * for kn.
+	 */
+	private static int chooseMultiplier(BigInteger n) {
+		int[] primes = ExtMath.primesUpTo(1000);
+		int best = 1;
+		double bestScore = Double.NEGATIVE_INFINITY;
+		for (int k : MULTIPLIERS) {
+			BigInteger kn = n.multiply(BigInteger.valueOf(k));
+			double score = -0.5 * Math.log(k);
+			int mod8 = kn.intValue() & 7;
+			if (mod8 == 1)
+				score += 2 * Math.log(2);
+			else if (mod8 == 5)
+				score += Math.log(2);
+			else if (mod8 == 3 || mod8 == 7)
+				score += 0.5 * Math.log(2);
+			for (int i = 1; i < primes.length; i++) {
+				int p = primes[i];
+				if (k % p == 0)
+					score += Math.log(p) / p;
+				else if (BigPrimality.jacobi(kn.mod(BigInteger.valueOf(p)).longValue(), p) == 1)
+					score += 2 * Math.log(p) / (p - 1);
+			}
+			if (score > bestScore) {
+				bestScore = score;
+				best = k;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the size of the factor base and M for a number of the given
+	 * amount of digits, interpolated linearly between the tabulated values.
+	 */
+	private static int[] parameters(int digits) {
+		if (digits <= PARAMETERS[0][0])
+			return new int[] { PARAMETERS[0][1], PARAMETERS[0][2] };
+		for (int i = 1; i < PARAMETERS.length; i++)
+			if (digits <= PARAMETERS[i][0]) {
+				int[] low = PARAMETERS[i - 1], high = PARAMETERS[i];
+				double t = (digits - low[0]) / (double) (high[0] - low[0]);
+				int size = (int) Math.round(low[1] + t * (high[1] - low[1]));
+				int half = (int) Math.round((low[2] + t * (high[2] - low[2])) / 4096) * 4096;
+				return new int[] { size, half };
+			}
+		int[] last = PARAMETERS[PARAMETERS.length - 1];
+		return new int[] { last[1], last[2] };
+	}
+
+	/**
+	 * Returns a square root of the quadratic residue a modulo the odd prime p
+	 * with the algorithm of Tonelli and Shanks.
+	 */
+	static int sqrtModPrime(int a, int p) {
+		if ((p & 3) == 3)
+			return (int) powMod(a, (p + 1) >>> 2, p);
+		int s = Integer.numberOfTrailingZeros(p - 1), q = (p - 1) >>> s;
+		int z = 2;
+		while (BigPrimality.jacobi(z, p) != -1)
+			z++;
+		long c = powMod(z, q, p), r = powMod(a, (q + 1) >>> 1, p), t = powMod(a, q, p);
+		int m = s;
+		while (t != 1) {
+			int i = 0;
+			for (long t2 = t; t2 != 1; t2 = t2 * t2 % p)
+				i++;
+			long b = c;
+			for (int j = 0; j < m - i - 1; j++)
+				b = b * b % p;
+			r = r * b % p;
+			c = b * b % p;
+			t = t * c % p;
+			m = i;
+		}
+		return (int) r;
+	}
+
+	private static long powMod(long base, long exponent, long modulus) {
+		long result = 1;
+		base %= modulus;
+		while (exponent > 0) {
+			if ((exponent & 1) == 1)
+				result = result * base % modulus;
+			base = base * base % modulus;
+			exponent >>= 1;
+		}
+		return result;
+	}
+
+	private final BigInteger n, kn, smallFactor;
+	private final int multiplier, halfInterval, firstSieved, threshold, aFactors;
+	private final int[] factorBase, sqrtKn;
+	private final byte[] logs;
+	private final long largePrimeBound;
+	private final double logTarget;
+
+	private static final double LN2 = Math.log(2);
+
+	/**
+	 * The amount of digits, the size of the factor base and M.
+	 */
+	private static final int[][] PARAMETERS = { { 20, 120, 16384 }, { 25, 160, 16384 },
+			{ 30, 240, 32768 }, { 35, 400, 32768 }, { 40, 650, 32768 }, { 45, 1000, 65536 },
+			{ 50, 1500, 65536 }, { 55, 2200, 98304 }, { 60, 3000, 98304 }, { 65, 4200, 131072 },
+			{ 70, 6000, 131072 }, { 80, 10000, 196608 }, { 90, 16000, 262144 } };
+
+	private static final int[] MULTIPLIERS = { 1, 2, 3, 5, 6, 7, 10, 11, 13, 14, 15, 17, 19, 21,
+			22, 23, 26, 29, 30, 31, 33, 34, 35, 37, 38, 39, 41, 42, 43, 46, 47, 51, 53, 55, 57,
+			58, 59, 61, 62, 65, 66, 67, 69, 70, 71, 73 };
+
+	/**
+	 * The largest factor base of the table contains primes below this bound.
+	 */
+	private static final int PRIME_LIMIT = 1 << 20;
+
+	/**
+	 * Primes below this bound are not sieved, they take the most time for
+	 * the smallest contribution. The threshold is lowered by the amount of
+	 * bits they typically contribute.
+	 */
+	private static final int SMALL_PRIME_LIMIT = 30;
+	private static final double SMALL_PRIME_CORRECTION = 2;
+
+	private static final int LARGE_PRIME_MULTIPLIER = 64;
+
+	/**
+	 * The amount of relations collected beyond the size of the factor base,
+	 * each gives a dependency and thus a chance of 1/2 of a factor.
+	 */
+	private static final int EXTRA_RELATIONS = 32;
+}
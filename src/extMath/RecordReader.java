@@ -0,0 +1,120 @@
+package extMath;
+
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * This class reads the records written by BinaryCodec one after the other
+ * from a buffer, typically a memory mapped file. The records are decoded
+ * straight from the buffer, so apart from the returned values no objects are
+ * created, and records which are of no interest can be skipped without
+ * decoding them.
+ *
+ * @author Mattias De Charleroy
+ * @version 1.0
+ */
+public final class RecordReader {
+
+	/**
+	 * Initializes this reader over the remaining bytes of the given buffer.
+	 * The buffer itself is not advanced, the reader uses a view of it.
+	 *
+	 * @param buffer
+	 *        The buffer which holds the records
+	 */
+	public RecordReader(ByteBuffer buffer) {
+		this.buffer = buffer.slice();
+	}
+
+	/**
+	 * Returns a reader over the records in the given file. The file is
+	 * mapped into memory read only, so the records are read by the operating
+	 * system on demand.
+	 *
+	 * @param file
+	 *        The file which holds the records
+	 * @throws IOException
+	 *         Thrown when the file can't be opened or mapped
+	 * @throws IllegalArgumentException
+	 *         Thrown when the file is larger than 2 GB, which is the largest
+	 *         buffer that can be mapped at once
+	 */
+	public static RecordReader open(File file) throws IOException {
+		RandomAccessFile stream = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = stream.getChannel();
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IllegalArgumentException("The file is too large to be mapped");
+			// The mapping stays valid after the channel has been closed.
+			return new RecordReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Returns true if and only if there are more records.
+	 */
+	public boolean hasNext() {
+		return buffer.hasRemaining();
+	}
+
+	/**
+	 * Returns the tag of the next record, as defined in BinaryCodec, without
+	 * reading the record.
+	 */
+	public byte peekTag() {
+		return BinaryCodec.peekTag(buffer);
+	}
+
+	/**
+	 * Reads the next record as a Fraction.
+	 *
+	 * @see BinaryCodec#readFraction(ByteBuffer)
+	 */
+	public Fraction nextFraction() {
+		return BinaryCodec.readFraction(buffer);
+	}
+
+	/**
+	 * Reads the next record as a BigFraction.
+	 *
+	 * @see BinaryCodec#readBigFraction(ByteBuffer)
+	 */
+	public BigFraction nextBigFraction() {
+		return BinaryCodec.readBigFraction(buffer);
+	}
+
+	/**
+	 * Reads the next record as a factorization.
+	 *
+	 * @see BinaryCodec#readFactorization(ByteBuffer)
+	 */
+	public long[] nextFactorization() {
+		return BinaryCodec.readFactorization(buffer);
+	}
+
+	/**
+	 * Skips the next record without decoding it.
+	 *
+	 * @see BinaryCodec#skip(ByteBuffer)
+	 */
+	public void skip() {
+		BinaryCodec.skip(buffer);
+	}
+
+	/**
+	 * Returns the offset of the next record, relative to the start of the
+	 * buffer this reader has been created with.
+	 */
+	public int getPosition() {
+		return buffer.position();
+	}
+
+	private final ByteBuffer buffer;
+}
@@ -0,0 +1,73 @@
+package extMath;
+
+/**
+ * This class represents the result of ExtMath.solveSystemRefined: the solution
+ * of a linear system together with information about how it was obtained.
+ *
+ * @author Mattias De Charleroy
+ * @version 1.0
+ */
+public final class RefinedSolution {
+
+	RefinedSolution(double[] solution, int iterations, double conditionEstimate,
+			double backwardError, boolean fullPrecision) {
+		this.solution = solution;
+		this.iterations = iterations;
+		this.conditionEstimate = conditionEstimate;
+		this.backwardError = backwardError;
+		this.fullPrecision = fullPrecision;
+	}
+
+	/**
+	 * Returns the solution x of the system A*x = b.
+	 */
+	public double[] getSolution() {
+		return solution;
+	}
+
+	/**
+	 * Returns the amount of refinement steps which have been done on the
+	 * single precision solution.
+	 */
+	public int getIterations() {
+		return iterations;
+	}
+
+	/**
+	 * Returns an estimate of the condition number of A in the 1-norm.
+	 */
+	public double getConditionEstimate() {
+		return conditionEstimate;
+	}
+
+	/**
+	 * Returns the normwise relative backward error of the solution, which is
+	 * |b - A*x| / (|A|*|x| + |b|) in the infinity norm.
+	 */
+	public double getBackwardError() {
+		return backwardError;
+	}
+
+	/**
+	 * Returns true if the system has been solved again with a double precision
+	 * factorization. This happens when the single precision factorization
+	 * meets a zero pivot, when A is too ill-conditioned for single precision,
+	 * or when the refinement does not reach the requested tolerance. The
+	 * condition estimate is then taken from the double precision factors.
+	 */
+	public boolean isFullPrecision() {
+		return fullPrecision;
+	}
+
+	@Override
+	public String toString() {
+		return "RefinedSolution[iterations=" + iterations + ", conditionEstimate="
+				+ conditionEstimate + ", backwardError=" + backwardError + ", fullPrecision="
+				+ fullPrecision + "]";
+	}
+
+	private final double[] solution;
+	private final int iterations;
+	private final double conditionEstimate, backwardError;
+	private final boolean fullPrecision;
+}